@@ -0,0 +1,126 @@
+package com.gameengine.components;
+
+import com.gameengine.core.Component;
+import com.gameengine.math.Vector2;
+
+/**
+ * Per-entity AI state. Decisions (picking a new target velocity) are made by
+ * AIScheduler when this agent comes due; steering toward the current target runs
+ * every frame in update().
+ */
+public class AIControllerComponent extends Component<AIControllerComponent> {
+    private final Vector2 targetVelocity;
+    private int priority;
+    private float minInterval;
+    private float maxInterval;
+    private float lerpFactor;
+    private float maxSpeed;
+    private double lastDecisionTime;
+    private double nextDecisionTime;
+    private boolean scheduled;
+    private long sequence;
+    
+    public AIControllerComponent() {
+        this.targetVelocity = new Vector2();
+        this.priority = 1;
+        this.minInterval = 2.0f;
+        this.maxInterval = 4.0f;
+        this.lerpFactor = 0.1f;
+        this.maxSpeed = 150f;
+        this.lastDecisionTime = 0;
+        this.nextDecisionTime = 0;
+        this.scheduled = false;
+    }
+    
+    @Override
+    public void initialize() {
+    }
+    
+    @Override
+    public void update(float deltaTime) {
+        PhysicsComponent physics = owner.getComponent(PhysicsComponent.class);
+        if (physics == null) return;
+        
+        float vx = physics.getVelocityX();
+        float vy = physics.getVelocityY();
+        vx += (targetVelocity.x - vx) * lerpFactor;
+        vy += (targetVelocity.y - vy) * lerpFactor;
+        
+        float speedSq = vx * vx + vy * vy;
+        if (speedSq > maxSpeed * maxSpeed) {
+            float scale = maxSpeed / (float) Math.sqrt(speedSq);
+            vx *= scale;
+            vy *= scale;
+        }
+        physics.setVelocity(vx, vy);
+    }
+    
+    @Override
+    public void render() {
+    }
+    
+    public void setTargetVelocity(float x, float y) {
+        targetVelocity.x = x;
+        targetVelocity.y = y;
+    }
+    
+    // 优先级越高，决策间隔越短，同一时刻到期时也越先执行
+    public void setPriority(int priority) {
+        this.priority = Math.max(1, priority);
+    }
+    
+    public void setDecisionInterval(float minInterval, float maxInterval) {
+        this.minInterval = Math.max(0.01f, minInterval);
+        this.maxInterval = Math.max(this.minInterval, maxInterval);
+    }
+    
+    public void setLerpFactor(float lerpFactor) {
+        this.lerpFactor = Math.max(0, Math.min(1, lerpFactor));
+    }
+    
+    public void setMaxSpeed(float maxSpeed) {
+        this.maxSpeed = maxSpeed;
+    }
+    
+    public void markDecided(double time, double nextTime) {
+        this.lastDecisionTime = time;
+        this.nextDecisionTime = nextTime;
+    }
+    
+    public void markScheduled(boolean scheduled, long sequence) {
+        this.scheduled = scheduled;
+        this.sequence = sequence;
+    }
+    
+    public Vector2 getTargetVelocity() {
+        return new Vector2(targetVelocity);
+    }
+    
+    public int getPriority() {
+        return priority;
+    }
+    
+    public float getMinInterval() {
+        return minInterval;
+    }
+    
+    public float getMaxInterval() {
+        return maxInterval;
+    }
+    
+    public double getLastDecisionTime() {
+        return lastDecisionTime;
+    }
+    
+    public double getNextDecisionTime() {
+        return nextDecisionTime;
+    }
+    
+    public boolean isScheduled() {
+        return scheduled;
+    }
+    
+    public long getSequence() {
+        return sequence;
+    }
+}
@@ -0,0 +1,122 @@
+package com.gameengine.components;
+
+import com.gameengine.core.Component;
+import com.gameengine.core.GameObject;
+import com.gameengine.math.Vector2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Area force applied in bulk by PhysicsSystem. Strength is an acceleration in px/s^2
+ * (mass independent). Attractors and repulsors fall off linearly to zero at the
+ * radius; wind pushes along a fixed direction. A radius <= 0 means unbounded.
+ */
+public class ForceFieldComponent extends Component<ForceFieldComponent> {
+    public enum FieldType {
+        ATTRACTOR,
+        REPULSOR,
+        WIND
+    }
+    
+    private FieldType type;
+    private float radius;
+    private float strength;
+    private final Vector2 direction;
+    private float captureRadius;
+    private Predicate<GameObject> filter;
+    private final List<GameObject> captured;
+    
+    public ForceFieldComponent(FieldType type, float radius, float strength) {
+        this.type = type;
+        this.radius = radius;
+        this.strength = strength;
+        this.direction = new Vector2(0, 1);
+        this.captureRadius = 0f;
+        this.filter = null;
+        this.captured = new ArrayList<>();
+    }
+    
+    public static ForceFieldComponent wind(Vector2 direction, float strength, float radius) {
+        ForceFieldComponent field = new ForceFieldComponent(FieldType.WIND, radius, strength);
+        field.setDirection(direction);
+        return field;
+    }
+    
+    @Override
+    public void initialize() {
+    }
+    
+    @Override
+    public void render() {
+    }
+    
+    public void setDirection(Vector2 direction) {
+        Vector2 n = direction.normalize();
+        this.direction.x = n.x;
+        this.direction.y = n.y;
+    }
+    
+    public void setRadius(float radius) {
+        this.radius = radius;
+    }
+    
+    public void setStrength(float strength) {
+        this.strength = strength;
+    }
+    
+    // 进入捕获半径的物体会被记录下来，由场景在下一帧处理（如黑洞吞噬）
+    public void setCaptureRadius(float captureRadius) {
+        this.captureRadius = captureRadius;
+    }
+    
+    // 过滤器会在物理工作线程上调用，必须是无副作用的只读判断
+    public void setFilter(Predicate<GameObject> filter) {
+        this.filter = filter;
+    }
+    
+    public boolean affects(GameObject obj) {
+        return filter == null || filter.test(obj);
+    }
+    
+    public void clearCaptured() {
+        captured.clear();
+    }
+    
+    public void addCaptured(GameObject obj) {
+        captured.add(obj);
+    }
+    
+    public List<GameObject> getCaptured() {
+        return captured;
+    }
+    
+    public FieldType getType() {
+        return type;
+    }
+    
+    public float getRadius() {
+        return radius;
+    }
+    
+    public boolean isUnbounded() {
+        return radius <= 0;
+    }
+    
+    public float getStrength() {
+        return strength;
+    }
+    
+    public float getDirectionX() {
+        return direction.x;
+    }
+    
+    public float getDirectionY() {
+        return direction.y;
+    }
+    
+    public float getCaptureRadius() {
+        return captureRadius;
+    }
+}
@@ -4,12 +4,24 @@ import com.gameengine.core.Component;
 import com.gameengine.math.Vector2;
 
 public class PhysicsComponent extends Component<PhysicsComponent> {
-    private Vector2 velocity;
-    private Vector2 acceleration;
+    // 速度低于该阈值并持续 SLEEP_DELAY 秒后进入休眠
+    public static final float SLEEP_VELOCITY = 1.0f;
+    public static final float SLEEP_DELAY = 0.5f;
+    
+    private final Vector2 velocity;
+    private final Vector2 acceleration;
     private float mass;
     private float friction;
     private boolean useGravity;
     private Vector2 gravity;
+    // 连续碰撞：高速物体记录本步起点，供扫掠检测使用
+    private boolean continuous;
+    private final Vector2 sweepStart;
+    private boolean hasSweep;
+    // 静态物体不参与积分；休眠物体在被施力/冲量/设速度时唤醒
+    private boolean isStatic;
+    private boolean sleeping;
+    private float sleepTimer;
     
     public PhysicsComponent() {
         this.velocity = new Vector2();
@@ -18,6 +30,12 @@ public class PhysicsComponent extends Component<PhysicsComponent> {
         this.friction = 0.9f;
         this.useGravity = false;
         this.gravity = new Vector2(0, 9.8f);
+        this.continuous = false;
+        this.sweepStart = new Vector2();
+        this.hasSweep = false;
+        this.isStatic = false;
+        this.sleeping = false;
+        this.sleepTimer = 0f;
     }
     
     public PhysicsComponent(float mass) {
@@ -35,30 +53,50 @@ public class PhysicsComponent extends Component<PhysicsComponent> {
     
     public void applyForce(Vector2 force) {
         if (mass > 0) {
-            acceleration = acceleration.add(force.multiply(1.0f / mass));
+            acceleration.x += force.x / mass;
+            acceleration.y += force.y / mass;
+            wakeIfMoving(acceleration.x, acceleration.y, 0f);
         }
     }
     
     public void applyImpulse(Vector2 impulse) {
         if (mass > 0) {
-            velocity = velocity.add(impulse.multiply(1.0f / mass));
+            velocity.x += impulse.x / mass;
+            velocity.y += impulse.y / mass;
+            wakeIfMoving(velocity.x, velocity.y, SLEEP_VELOCITY);
         }
     }
     
     public void setVelocity(Vector2 velocity) {
-        this.velocity = new Vector2(velocity);
+        setVelocity(velocity.x, velocity.y);
     }
     
     public void setVelocity(float x, float y) {
-        this.velocity = new Vector2(x, y);
+        velocity.x = x;
+        velocity.y = y;
+        wakeIfMoving(x, y, SLEEP_VELOCITY);
     }
     
     public void setAcceleration(Vector2 acceleration) {
-        this.acceleration = new Vector2(acceleration);
+        this.acceleration.x = acceleration.x;
+        this.acceleration.y = acceleration.y;
+        wakeIfMoving(acceleration.x, acceleration.y, 0f);
     }
     
     public void addVelocity(Vector2 delta) {
-        this.velocity = velocity.add(delta);
+        setVelocity(velocity.x + delta.x, velocity.y + delta.y);
+    }
+    
+    // 力场等批量系统直接叠加加速度（与质量无关），非零时唤醒
+    public void addAcceleration(float ax, float ay) {
+        acceleration.x += ax;
+        acceleration.y += ay;
+        wakeIfMoving(ax, ay, 0f);
+    }
+    
+    public void clearAcceleration() {
+        acceleration.x = 0;
+        acceleration.y = 0;
     }
     
     public void setGravity(Vector2 gravity) {
@@ -67,24 +105,94 @@ public class PhysicsComponent extends Component<PhysicsComponent> {
     
     public void setUseGravity(boolean useGravity) {
         this.useGravity = useGravity;
+        if (useGravity) wake();
     }
     
     public void setFriction(float friction) {
         this.friction = Math.max(0, Math.min(1, friction));
     }
     
+    public void setContinuous(boolean continuous) {
+        this.continuous = continuous;
+        this.hasSweep = false;
+    }
+    
+    public void beginSweep(float x, float y) {
+        sweepStart.x = x;
+        sweepStart.y = y;
+        hasSweep = true;
+    }
+    
     public void setMass(float mass) {
         this.mass = Math.max(0.1f, mass);
     }
     
+    // 静态物体不参与积分；PhysicsSystem 每帧检查该标记，可随时切换
+    public void setStatic(boolean isStatic) {
+        this.isStatic = isStatic;
+        if (!isStatic) wake();
+    }
+    
+    public void wake() {
+        sleeping = false;
+        sleepTimer = 0f;
+    }
+    
+    public void sleep() {
+        sleeping = true;
+        sleepTimer = 0f;
+        velocity.x = 0;
+        velocity.y = 0;
+        hasSweep = false;
+    }
+    
+    /**
+     * Called by the physics step after integration. Accumulates rest time while the
+     * body is slow and unforced, and puts it to sleep once SLEEP_DELAY is reached.
+     */
+    public void updateSleep(float deltaTime) {
+        float speedSq = velocity.x * velocity.x + velocity.y * velocity.y;
+        if (useGravity || speedSq > SLEEP_VELOCITY * SLEEP_VELOCITY
+                || acceleration.x != 0 || acceleration.y != 0) {
+            sleepTimer = 0f;
+            return;
+        }
+        sleepTimer += deltaTime;
+        if (sleepTimer >= SLEEP_DELAY) {
+            sleep();
+        }
+    }
+    
+    private void wakeIfMoving(float x, float y, float threshold) {
+        if (sleeping && x * x + y * y > threshold * threshold) {
+            wake();
+        }
+    }
+    
     public Vector2 getVelocity() {
         return new Vector2(velocity);
     }
     
+    public float getVelocityX() {
+        return velocity.x;
+    }
+    
+    public float getVelocityY() {
+        return velocity.y;
+    }
+    
     public Vector2 getAcceleration() {
         return new Vector2(acceleration);
     }
     
+    public float getAccelerationX() {
+        return acceleration.x;
+    }
+    
+    public float getAccelerationY() {
+        return acceleration.y;
+    }
+    
     public float getMass() {
         return mass;
     }
@@ -97,7 +205,43 @@ public class PhysicsComponent extends Component<PhysicsComponent> {
         return useGravity;
     }
     
+    public boolean isContinuous() {
+        return continuous;
+    }
+    
+    public boolean hasSweep() {
+        return hasSweep;
+    }
+    
+    public Vector2 getSweepStart() {
+        return new Vector2(sweepStart);
+    }
+    
+    public float getSweepStartX() {
+        return sweepStart.x;
+    }
+    
+    public float getSweepStartY() {
+        return sweepStart.y;
+    }
+    
+    public boolean isStatic() {
+        return isStatic;
+    }
+    
+    public boolean isSleeping() {
+        return sleeping;
+    }
+    
     public Vector2 getGravity() {
         return new Vector2(gravity);
     }
+    
+    public float getGravityX() {
+        return gravity.x;
+    }
+    
+    public float getGravityY() {
+        return gravity.y;
+    }
 }
@@ -108,6 +108,14 @@ public class RenderComponent extends Component<RenderComponent> {
         return new Vector2(size);
     }
     
+    public float getWidth() {
+        return size.x;
+    }
+    
+    public float getHeight() {
+        return size.y;
+    }
+    
     public Color getColor() {
         return color;
     }
@@ -41,6 +41,11 @@ public class TransformComponent extends Component<TransformComponent> {
         this.position = position.add(delta);
     }
     
+    public void translate(float dx, float dy) {
+        position.x += dx;
+        position.y += dy;
+    }
+    
     public void rotate(float angle) {
         this.rotation += angle;
     }
@@ -65,6 +70,19 @@ public class TransformComponent extends Component<TransformComponent> {
         this.position = new Vector2(position);
     }
     
+    public void setPosition(float x, float y) {
+        position.x = x;
+        position.y = y;
+    }
+    
+    public float getX() {
+        return position.x;
+    }
+    
+    public float getY() {
+        return position.y;
+    }
+    
     public Vector2 getScale() {
         return new Vector2(scale);
     }
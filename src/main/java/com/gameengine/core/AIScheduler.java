@@ -0,0 +1,120 @@
+package com.gameengine.core;
+
+import com.gameengine.components.AIControllerComponent;
+import com.gameengine.components.TransformComponent;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Time-sliced decision scheduler. Agents wait in a queue ordered by due time, and
+ * each frame only the due agents are processed until the microsecond budget runs
+ * out. Anything left over stays due and goes first next frame. Far away and
+ * low-priority agents get longer intervals, so the decision rate stays bounded as
+ * the agent count grows.
+ */
+public class AIScheduler {
+    public interface DecisionMaker {
+        void decide(AIControllerComponent ai, float sinceLastDecision);
+    }
+    
+    private final PriorityQueue<AIControllerComponent> queue;
+    private final DecisionMaker decisionMaker;
+    private final Random random;
+    private long frameBudgetMicros;
+    private float lodDistance;
+    private double time;
+    private long nextSequence;
+    private int decisionsLastFrame;
+    
+    public AIScheduler(DecisionMaker decisionMaker) {
+        this.decisionMaker = decisionMaker;
+        this.random = new Random();
+        this.frameBudgetMicros = 500;
+        this.lodDistance = 400f;
+        this.queue = new PriorityQueue<>((a, b) -> {
+            int c = Double.compare(a.getNextDecisionTime(), b.getNextDecisionTime());
+            if (c != 0) return c;
+            c = Integer.compare(b.getPriority(), a.getPriority());
+            if (c != 0) return c;
+            return Long.compare(a.getSequence(), b.getSequence());
+        });
+    }
+    
+    public void setFrameBudgetMicros(long micros) {
+        this.frameBudgetMicros = Math.max(1, micros);
+    }
+    
+    // 与焦点距离每增加 lodDistance，决策间隔增加一倍
+    public void setLodDistance(float lodDistance) {
+        this.lodDistance = Math.max(1f, lodDistance);
+    }
+    
+    public void register(AIControllerComponent ai) {
+        if (ai.isScheduled()) return;
+        ai.markDecided(time, time);
+        ai.markScheduled(true, nextSequence++);
+        queue.add(ai);
+    }
+    
+    public void update(float deltaTime, float focusX, float focusY) {
+        time += deltaTime;
+        long deadline = System.nanoTime() + frameBudgetMicros * 1000L;
+        int decisions = 0;
+        
+        while (!queue.isEmpty()) {
+            AIControllerComponent ai = queue.peek();
+            if (ai.getNextDecisionTime() > time) break;
+            // 至少处理一个，保证预算极小时也能推进
+            if (decisions > 0 && System.nanoTime() > deadline) break;
+            queue.poll();
+            
+            GameObject owner = ai.getOwner();
+            if (owner == null || !owner.isActive() || !ai.isEnabled()) {
+                ai.markScheduled(false, 0);
+                continue;
+            }
+            
+            decisionMaker.decide(ai, (float) (time - ai.getLastDecisionTime()));
+            ai.markDecided(time, time + nextInterval(ai, owner, focusX, focusY));
+            ai.markScheduled(true, nextSequence++);
+            queue.add(ai);
+            decisions++;
+        }
+        
+        decisionsLastFrame = decisions;
+    }
+    
+    private float nextInterval(AIControllerComponent ai, GameObject owner, float focusX, float focusY) {
+        float base = ai.getMinInterval() + random.nextFloat() * (ai.getMaxInterval() - ai.getMinInterval());
+        TransformComponent transform = owner.getComponent(TransformComponent.class);
+        float lod = 1f;
+        if (transform != null) {
+            float dx = transform.getX() - focusX;
+            float dy = transform.getY() - focusY;
+            lod += (float) Math.sqrt(dx * dx + dy * dy) / lodDistance;
+        }
+        return base * lod / ai.getPriority();
+    }
+    
+    public void clear() {
+        for (AIControllerComponent ai : queue) {
+            ai.markScheduled(false, 0);
+        }
+        queue.clear();
+    }
+    
+    public int getAgentCount() {
+        return queue.size();
+    }
+    
+    public int getDecisionsLastFrame() {
+        return decisionsLastFrame;
+    }
+    
+    // 预算用尽后仍有到期未处理的代理
+    public boolean hasBacklog() {
+        AIControllerComponent head = queue.peek();
+        return head != null && head.getNextDecisionTime() <= time;
+    }
+}
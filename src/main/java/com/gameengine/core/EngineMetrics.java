@@ -0,0 +1,110 @@
+package com.gameengine.core;
+
+/**
+ * Per-frame counters published by the engine and its subsystems. Values are
+ * overwritten every frame; read them from the main thread (debug overlay, logs).
+ */
+public class EngineMetrics {
+    private float frameTimeMs;
+    private int particleCount;
+    private int particleBudget;
+    private float particlePressure;
+    private long particlesDropped;
+    private int renderedObjects;
+    private int culledObjects;
+    private int stateChanges;
+    private int redundantStateChanges;
+    private int recordingLag;
+    private long recordingDropped;
+    private long recordingCoalesced;
+    private float recordingBlockedMs;
+    
+    public void setFrameTimeMs(float frameTimeMs) {
+        this.frameTimeMs = frameTimeMs;
+    }
+    
+    public void setParticleStats(int count, int budget, float pressure, long dropped) {
+        this.particleCount = count;
+        this.particleBudget = budget;
+        this.particlePressure = pressure;
+        this.particlesDropped = dropped;
+    }
+    
+    public void setRenderStats(int rendered, int culled) {
+        this.renderedObjects = rendered;
+        this.culledObjects = culled;
+    }
+    
+    // 只有 GPU 后端统计状态切换，其它后端为 0
+    public void setStateChangeStats(int changes, int redundant) {
+        this.stateChanges = changes;
+        this.redundantStateChanges = redundant;
+    }
+    
+    public void setRecordingStats(int lag, long dropped, long coalesced, float blockedMs) {
+        this.recordingLag = lag;
+        this.recordingDropped = dropped;
+        this.recordingCoalesced = coalesced;
+        this.recordingBlockedMs = blockedMs;
+    }
+    
+    public float getFrameTimeMs() {
+        return frameTimeMs;
+    }
+    
+    public int getParticleCount() {
+        return particleCount;
+    }
+    
+    public int getParticleBudget() {
+        return particleBudget;
+    }
+    
+    // 0 表示无压力，1 表示已到达预算上限或帧时间严重超标
+    public float getParticlePressure() {
+        return particlePressure;
+    }
+    
+    // 因预算或降级而未发射的粒子累计数
+    public long getParticlesDropped() {
+        return particlesDropped;
+    }
+    
+    public int getRenderedObjects() {
+        return renderedObjects;
+    }
+    
+    // 视口裁剪跳过的对象数
+    public int getCulledObjects() {
+        return culledObjects;
+    }
+    
+    // 上一帧实际提交的纹理/混合状态切换次数
+    public int getStateChanges() {
+        return stateChanges;
+    }
+    
+    // 上一帧被状态跟踪器过滤掉的冗余设置次数
+    public int getRedundantStateChanges() {
+        return redundantStateChanges;
+    }
+    
+    // 录像写线程尚未写出的记录数
+    public int getRecordingLag() {
+        return recordingLag;
+    }
+    
+    // 队列已满时按溢出策略丢弃的录像记录累计数
+    public long getRecordingDropped() {
+        return recordingDropped;
+    }
+    
+    public long getRecordingCoalesced() {
+        return recordingCoalesced;
+    }
+    
+    // 游戏线程等待录像队列的累计时间
+    public float getRecordingBlockedMs() {
+        return recordingBlockedMs;
+    }
+}
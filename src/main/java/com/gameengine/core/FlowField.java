@@ -0,0 +1,204 @@
+package com.gameengine.core;
+
+import com.gameengine.math.Vector2;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Grid of unit directions pointing toward a single target, shared by every agent
+ * chasing it. The distance field is rebuilt every few frames (optionally on the
+ * worker pool) into a back buffer and then published with a reference swap, so
+ * sample() never blocks and always sees one complete field.
+ */
+public class FlowField {
+    private static final float DIAGONAL = 1.4142135f;
+    private static final float UNREACHED = Float.MAX_VALUE;
+    
+    private static final class Layer {
+        final float[] distance;
+        final float[] dirX;
+        final float[] dirY;
+        float targetX;
+        float targetY;
+        int targetCell = -1;
+        
+        Layer(int cells) {
+            distance = new float[cells];
+            dirX = new float[cells];
+            dirY = new float[cells];
+        }
+    }
+    
+    private final float cellSize;
+    private final int columns;
+    private final int rows;
+    private volatile Layer front;
+    private Layer back;
+    private final AtomicBoolean building;
+    private WorkerPool workerPool;
+    private int rebuildInterval;
+    private int framesSinceBuild;
+    private float pendingX;
+    private float pendingY;
+    private final Runnable buildTask;
+    
+    public FlowField(float width, float height, float cellSize) {
+        this.cellSize = cellSize;
+        this.columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        this.front = new Layer(columns * rows);
+        this.back = new Layer(columns * rows);
+        this.building = new AtomicBoolean(false);
+        this.rebuildInterval = 10;
+        this.framesSinceBuild = Integer.MAX_VALUE;
+        this.buildTask = this::buildAndSwap;
+    }
+    
+    // 传入 null 时在调用线程同步重建
+    public void setWorkerPool(WorkerPool workerPool) {
+        this.workerPool = workerPool;
+    }
+    
+    public void setRebuildInterval(int frames) {
+        this.rebuildInterval = Math.max(1, frames);
+    }
+    
+    /**
+     * Call once per frame with the current target. Starts a rebuild when the
+     * interval has elapsed; if the previous asynchronous build is still running,
+     * the request waits for the next frame.
+     */
+    public void update(float targetX, float targetY) {
+        if (framesSinceBuild != Integer.MAX_VALUE) framesSinceBuild++;
+        if (framesSinceBuild < rebuildInterval) return;
+        if (!building.compareAndSet(false, true)) return;
+        
+        pendingX = targetX;
+        pendingY = targetY;
+        framesSinceBuild = 0;
+        if (workerPool == null || front.targetCell < 0) {
+            // 第一张场同步生成，避免开局时所有代理读到空场
+            buildAndSwap();
+        } else {
+            workerPool.execute(buildTask);
+        }
+    }
+    
+    /**
+     * Writes the unit direction toward the target at (x, y) into out. Inside the
+     * target cell the direction points straight at the target; before the first
+     * build it is zero.
+     */
+    public Vector2 sample(float x, float y, Vector2 out) {
+        Layer layer = front;
+        int cell = row(y) * columns + column(x);
+        if (layer.targetCell < 0) {
+            out.x = 0;
+            out.y = 0;
+        } else if (cell == layer.targetCell) {
+            float dx = layer.targetX - x;
+            float dy = layer.targetY - y;
+            float len = (float) Math.sqrt(dx * dx + dy * dy);
+            out.x = len > 0.0001f ? dx / len : 0;
+            out.y = len > 0.0001f ? dy / len : 0;
+        } else {
+            out.x = layer.dirX[cell];
+            out.y = layer.dirY[cell];
+        }
+        return out;
+    }
+    
+    public boolean isBuilding() {
+        return building.get();
+    }
+    
+    public int getColumns() {
+        return columns;
+    }
+    
+    public int getRows() {
+        return rows;
+    }
+    
+    private void buildAndSwap() {
+        try {
+            Layer layer = back;
+            build(layer, pendingX, pendingY);
+            back = front;
+            front = layer;
+        } finally {
+            building.set(false);
+        }
+    }
+    
+    private void build(Layer layer, float targetX, float targetY) {
+        float[] d = layer.distance;
+        Arrays.fill(d, UNREACHED);
+        int target = row(targetY) * columns + column(targetX);
+        d[target] = 0;
+        
+        // 两遍倒角距离变换（1 / √2 权重），近似欧氏距离，代价为 O(格子数)
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                int i = r * columns + c;
+                float best = d[i];
+                if (c > 0) best = Math.min(best, d[i - 1] + 1);
+                if (r > 0) {
+                    best = Math.min(best, d[i - columns] + 1);
+                    if (c > 0) best = Math.min(best, d[i - columns - 1] + DIAGONAL);
+                    if (c < columns - 1) best = Math.min(best, d[i - columns + 1] + DIAGONAL);
+                }
+                d[i] = best;
+            }
+        }
+        for (int r = rows - 1; r >= 0; r--) {
+            for (int c = columns - 1; c >= 0; c--) {
+                int i = r * columns + c;
+                float best = d[i];
+                if (c < columns - 1) best = Math.min(best, d[i + 1] + 1);
+                if (r < rows - 1) {
+                    best = Math.min(best, d[i + columns] + 1);
+                    if (c < columns - 1) best = Math.min(best, d[i + columns + 1] + DIAGONAL);
+                    if (c > 0) best = Math.min(best, d[i + columns - 1] + DIAGONAL);
+                }
+                d[i] = best;
+            }
+        }
+        
+        // 方向取距离场的负梯度（中心差分，边界处退化为单侧差分）
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                int i = r * columns + c;
+                float left = c > 0 ? d[i - 1] : d[i];
+                float right = c < columns - 1 ? d[i + 1] : d[i];
+                float up = r > 0 ? d[i - columns] : d[i];
+                float down = r < rows - 1 ? d[i + columns] : d[i];
+                float gx = left - right;
+                float gy = up - down;
+                float len = (float) Math.sqrt(gx * gx + gy * gy);
+                if (len > 0.0001f) {
+                    layer.dirX[i] = gx / len;
+                    layer.dirY[i] = gy / len;
+                } else {
+                    layer.dirX[i] = 0;
+                    layer.dirY[i] = 0;
+                }
+            }
+        }
+        
+        layer.targetX = targetX;
+        layer.targetY = targetY;
+        layer.targetCell = target;
+    }
+    
+    private int column(float x) {
+        int c = (int) Math.floor(x / cellSize);
+        return c < 0 ? 0 : (c >= columns ? columns - 1 : c);
+    }
+    
+    private int row(float y) {
+        int r = (int) Math.floor(y / cellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+}
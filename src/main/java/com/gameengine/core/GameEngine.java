@@ -1,17 +1,34 @@
 package com.gameengine.core;
 
+import com.gameengine.graphics.GPURenderer;
 import com.gameengine.graphics.IRenderer;
+import com.gameengine.graphics.RecordingRenderer;
+import com.gameengine.graphics.RenderCommandBuffer;
+import com.gameengine.graphics.RenderQueue;
 import com.gameengine.graphics.RenderBackend;
 import com.gameengine.graphics.RendererFactory;
+import com.gameengine.graphics.SoftwareRenderer;
 import com.gameengine.input.InputManager;
 import com.gameengine.scene.Scene;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
 
 public class GameEngine {
+    // 场景绘制用的渲染器：排序队列，排序后提交给 backend（延迟渲染时提交给 RecordingRenderer）
     private IRenderer renderer;
+    private IRenderer backend;
+    private RenderQueue queue;
+    private RecordingRenderer recorder;
+    private RenderCommandBuffer submitBuffer;
+    private RenderCommandBuffer recordBuffer;
     private InputManager inputManager;
     private Scene currentScene;
     private PhysicsSystem physicsSystem;
+    private WorkerPool workerPool;
+    private ParticleService particleService;
+    private EngineMetrics metrics;
     private boolean running;
     private float targetFPS;
     private float deltaTime;
@@ -27,13 +44,24 @@ public class GameEngine {
     
     public GameEngine(int width, int height, String title, RenderBackend backend) {
         this.title = title;
-        this.renderer = RendererFactory.createRenderer(backend, width, height, title);
+        this.backend = RendererFactory.createRenderer(backend, width, height, title);
+        this.queue = new RenderQueue(this.backend);
+        this.renderer = queue;
         this.inputManager = InputManager.getInstance();
+        this.workerPool = WorkerPool.createDefault();
+        if (this.backend instanceof SoftwareRenderer) {
+            ((SoftwareRenderer) this.backend).setWorkerPool(workerPool);
+        }
+        this.particleService = new ParticleService(renderer, workerPool);
+        this.metrics = new EngineMetrics();
         this.running = false;
         this.targetFPS = 60.0f;
         this.deltaTime = 0.0f;
         this.lastTime = System.nanoTime();
-        
+        // -Dgameengine.deferredRender=true：场景在工作线程录制，主线程提交上一帧
+        if (Boolean.getBoolean("gameengine.deferredRender")) {
+            setDeferredRendering(true);
+        }
     }
     
     public boolean initialize() {
@@ -49,11 +77,12 @@ public class GameEngine {
         running = true;
         
         if (currentScene != null) {
+            currentScene.setRenderer(renderer);
             currentScene.initialize();
             if (currentScene.getName().equals("MainMenu")) {
                 physicsSystem = null;
             } else {
-                physicsSystem = new PhysicsSystem(currentScene, renderer.getWidth(), renderer.getHeight());
+                physicsSystem = new PhysicsSystem(currentScene, renderer.getWidth(), renderer.getHeight(), workerPool);
             }
             
         }
@@ -72,9 +101,9 @@ public class GameEngine {
                 lastFrameTime = currentTime;
             }
             
-            renderer.pollEvents();
+            backend.pollEvents();
             
-            if (renderer.shouldClose()) {
+            if (backend.shouldClose()) {
                 running = false;
             }
             
@@ -91,7 +120,7 @@ public class GameEngine {
         deltaTime = (currentTime - lastTime) / 1_000_000_000.0f;
         lastTime = currentTime;
         
-        renderer.pollEvents();
+        backend.pollEvents();
         
         
         
@@ -103,8 +132,12 @@ public class GameEngine {
             physicsSystem.update(deltaTime);
         }
         
+        metrics.setFrameTimeMs(deltaTime * 1000f);
+        particleService.publishMetrics(metrics);
+        
         if (recordingService != null && recordingService.isRecording()) {
             recordingService.update(deltaTime, currentScene, inputManager);
+            recordingService.publishMetrics(metrics);
         }
         
         inputManager.update();
@@ -114,22 +147,100 @@ public class GameEngine {
             cleanup();
         }
         
-        if (renderer.shouldClose() && running) {
+        if (backend.shouldClose() && running) {
             running = false;
             cleanup();
         }
     }
     
+    // 在调用线程上渲染当前场景一帧（供不走 run() 循环的工具使用，例如离线导出）
+    public void renderFrame() {
+        render();
+    }
+    
     private void render() {
-        if (renderer == null) return;
-        
-        renderer.beginFrame();
+        if (backend == null) return;
         
         if (currentScene != null) {
-            currentScene.render();
+            currentScene.setViewport(0, 0, backend.getWidth(), backend.getHeight());
+        }
+        
+        if (recorder == null) {
+            backend.beginFrame();
+            queue.beginFrame();
+            if (currentScene != null) {
+                currentScene.render();
+            }
+            queue.flush();
+            backend.endFrame();
+            publishRenderStats();
+            return;
         }
         
-        renderer.endFrame();
+        // 延迟渲染：工作线程录制本帧，主线程同时提交上一帧录好的命令（画面滞后一帧）
+        Scene scene = currentScene;
+        RenderCommandBuffer target = recordBuffer;
+        Future<?> recording = workerPool.submit(() -> {
+            recorder.setBuffer(target);
+            target.clear();
+            queue.beginFrame();
+            if (scene != null) {
+                scene.render();
+            }
+            queue.flush();
+        });
+        
+        backend.beginFrame();
+        submitBuffer.replay(backend);
+        backend.endFrame();
+        
+        try {
+            recording.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            throw new RuntimeException("场景录制失败", e.getCause());
+        }
+        recordBuffer = submitBuffer;
+        submitBuffer = target;
+        publishRenderStats();
+    }
+    
+    private void publishRenderStats() {
+        if (currentScene != null) {
+            metrics.setRenderStats(currentScene.getRenderedCount(), currentScene.getCulledCount());
+        } else {
+            metrics.setRenderStats(0, 0);
+        }
+        if (backend instanceof GPURenderer) {
+            GPURenderer gpu = (GPURenderer) backend;
+            metrics.setStateChangeStats(gpu.getStateChanges(), gpu.getRedundantStateChanges());
+        }
+    }
+    
+    /**
+     * Routes scene rendering through a command buffer that the backend executes on
+     * this (GL) thread, recording the next frame on a worker meanwhile. Scenes keep
+     * drawing into the same render queue; only its target changes.
+     */
+    public void setDeferredRendering(boolean deferred) {
+        if (deferred == (recorder != null)) return;
+        if (deferred) {
+            recorder = new RecordingRenderer(backend);
+            submitBuffer = new RenderCommandBuffer();
+            recordBuffer = new RenderCommandBuffer();
+            queue.setTarget(recorder);
+        } else {
+            recorder = null;
+            submitBuffer = null;
+            recordBuffer = null;
+            queue.setTarget(backend);
+        }
+    }
+    
+    public boolean isDeferredRendering() {
+        return recorder != null;
     }
     
     public void setScene(Scene scene) {
@@ -140,12 +251,15 @@ public class GameEngine {
             }
             currentScene.clear();
         }
+        particleService.clear();
+        renderer.invalidateStaticLayers();
         this.currentScene = scene;
         if (scene != null) {
+            scene.setRenderer(renderer);
             if (running) {
                 scene.initialize();
                 if (!scene.getName().equals("MainMenu") && !scene.getName().equals("Replay")) {
-                    physicsSystem = new PhysicsSystem(scene, renderer.getWidth(), renderer.getHeight());
+                    physicsSystem = new PhysicsSystem(scene, renderer.getWidth(), renderer.getHeight(), workerPool);
                 }
             }
         }
@@ -169,7 +283,8 @@ public class GameEngine {
         if (currentScene != null) {
             currentScene.clear();
         }
-        renderer.cleanup();
+        workerPool.shutdown();
+        backend.cleanup();
     }
 
     // 可选：外部启用录制（按需调用）
@@ -197,6 +312,24 @@ public class GameEngine {
         return renderer;
     }
     
+    // 实际执行绘制的后端（场景拿到的 getRenderer() 是排序队列）
+    public IRenderer getBackend() {
+        return backend;
+    }
+    
+    // 粒子由场景自行 update/render，这样暂停时粒子也随之冻结
+    public ParticleService getParticleService() {
+        return particleService;
+    }
+    
+    public EngineMetrics getMetrics() {
+        return metrics;
+    }
+    
+    public WorkerPool getWorkerPool() {
+        return workerPool;
+    }
+    
     public InputManager getInputManager() {
         return inputManager;
     }
@@ -1,5 +1,6 @@
 package com.gameengine.core;
 
+import com.gameengine.components.AIControllerComponent;
 import com.gameengine.components.PhysicsComponent;
 import com.gameengine.components.TransformComponent;
 import com.gameengine.input.InputManager;
@@ -7,9 +8,7 @@ import com.gameengine.math.Vector2;
 import com.gameengine.scene.Scene;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -23,8 +22,7 @@ public class GameLogic {
     private Random random;
     private boolean gameOver;
     private GameEngine gameEngine;
-    private Map<GameObject, Vector2> aiTargetVelocities;
-    private Map<GameObject, Float> aiTargetUpdateTimers;
+    private AIScheduler aiScheduler;
     private ExecutorService avoidanceExecutor;
     
     public GameLogic(Scene scene) {
@@ -32,13 +30,19 @@ public class GameLogic {
         this.inputManager = InputManager.getInstance();
         this.random = new Random();
         this.gameOver = false;
-        this.aiTargetVelocities = new HashMap<>();
-        this.aiTargetUpdateTimers = new HashMap<>();
+        this.aiScheduler = new AIScheduler((ai, sinceLast) -> ai.setTargetVelocity(
+            (random.nextFloat() - 0.5f) * 150,
+            (random.nextFloat() - 0.5f) * 150
+        ));
         int threadCount = Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
         this.avoidanceExecutor = Executors.newFixedThreadPool(threadCount);
+        for (GameObject aiPlayer : getAIPlayers()) {
+            registerAIPlayer(aiPlayer);
+        }
     }
     
     public void cleanup() {
+        aiScheduler.clear();
         if (avoidanceExecutor != null && !avoidanceExecutor.isShutdown()) {
             avoidanceExecutor.shutdown();
             try {
@@ -76,6 +80,22 @@ public class GameLogic {
             .collect(Collectors.toList());
     }
     
+    // 加入场景并登记到调度器；之后由调度器在出队时丢弃失效的代理，不再逐帧扫描
+    public void addAIPlayer(GameObject aiPlayer) {
+        scene.addGameObject(aiPlayer);
+        registerAIPlayer(aiPlayer);
+    }
+    
+    // 直接通过 scene.addGameObject 加入的 AI 需调用一次
+    public void registerAIPlayer(GameObject aiPlayer) {
+        if (!aiPlayer.hasComponent(PhysicsComponent.class)) return;
+        AIControllerComponent ai = aiPlayer.getComponent(AIControllerComponent.class);
+        if (ai == null) {
+            ai = aiPlayer.addComponent(new AIControllerComponent());
+        }
+        aiScheduler.register(ai);
+    }
+    
     public void handlePlayerInput(float deltaTime) {
         if (gameOver) return;
         
@@ -121,52 +141,23 @@ public class GameLogic {
         transform.setPosition(pos);
     }
     
+    // 决策（换目标速度）交给 AIScheduler 分帧执行；逐帧的速度插值在 AIControllerComponent.update 中
     public void handleAIPlayerMovement(float deltaTime) {
         if (gameOver) return;
         
-        List<GameObject> aiPlayers = getAIPlayers();
-        
-        for (GameObject aiPlayer : aiPlayers) {
-            PhysicsComponent physics = aiPlayer.getComponent(PhysicsComponent.class);
-            if (physics == null) continue;
-            
-            if (!aiTargetVelocities.containsKey(aiPlayer)) {
-                Vector2 initialTarget = new Vector2(
-                    (random.nextFloat() - 0.5f) * 150,
-                    (random.nextFloat() - 0.5f) * 150
-                );
-                aiTargetVelocities.put(aiPlayer, initialTarget);
-                aiTargetUpdateTimers.put(aiPlayer, 0f);
-            }
-            
-            float timer = aiTargetUpdateTimers.get(aiPlayer) + deltaTime;
-            aiTargetUpdateTimers.put(aiPlayer, timer);
-            
-            if (timer >= (2.0f + random.nextFloat() * 2.0f)) {
-                Vector2 newTarget = new Vector2(
-                    (random.nextFloat() - 0.5f) * 150,
-                    (random.nextFloat() - 0.5f) * 150
-                );
-                aiTargetVelocities.put(aiPlayer, newTarget);
-                aiTargetUpdateTimers.put(aiPlayer, 0f);
-            }
-            
-            Vector2 currentVelocity = physics.getVelocity();
-            Vector2 targetVelocity = aiTargetVelocities.get(aiPlayer);
-            
-            float lerpFactor = 0.1f;
-            Vector2 newVelocity = new Vector2(
-                currentVelocity.x + (targetVelocity.x - currentVelocity.x) * lerpFactor,
-                currentVelocity.y + (targetVelocity.y - currentVelocity.y) * lerpFactor
-            );
-            
-            float maxSpeed = 150f;
-            if (newVelocity.magnitude() > maxSpeed) {
-                newVelocity = newVelocity.normalize().multiply(maxSpeed);
-            }
-            
-            physics.setVelocity(newVelocity);
+        float focusX = 0;
+        float focusY = 0;
+        GameObject player = getUserPlayer();
+        TransformComponent playerTransform = player != null ? player.getComponent(TransformComponent.class) : null;
+        if (playerTransform != null) {
+            focusX = playerTransform.getX();
+            focusY = playerTransform.getY();
         }
+        aiScheduler.update(deltaTime, focusX, focusY);
+    }
+    
+    public AIScheduler getAIScheduler() {
+        return aiScheduler;
     }
     
     
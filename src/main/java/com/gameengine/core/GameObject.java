@@ -1,11 +1,18 @@
 package com.gameengine.core;
 
+import com.gameengine.components.RenderComponent;
+import com.gameengine.components.TransformComponent;
+
 import java.util.*;
 
 public class GameObject {
     protected boolean active;
     protected String name;
     protected final List<Component<?>> components;
+    // 渲染图层号；场景可将某些图层标记为静态并缓存
+    private int layer;
+    // 同一图层内的绘制顺序，小的先画
+    private int z;
     
     public GameObject() {
         this.active = true;
@@ -29,6 +36,36 @@ public class GameObject {
     public void initialize() {
     }
     
+    /**
+     * Writes a conservative screen-space box (minX, minY, maxX, maxY) that contains
+     * everything render() draws, or returns false if the extent is unknown and the
+     * object must always be rendered. The default derives it from the transform and
+     * render size, padded by the largest dimension on every side so that subclasses
+     * drawing around the position (centered sprites, pulsing shapes) stay inside.
+     * Override when render() draws further away than that.
+     */
+    public boolean getRenderBounds(float[] out) {
+        TransformComponent transform = getComponent(TransformComponent.class);
+        RenderComponent render = getComponent(RenderComponent.class);
+        if (transform == null || render == null) {
+            return false;
+        }
+        float x = transform.getX();
+        float y = transform.getY();
+        float w = render.getWidth();
+        float h = render.getHeight();
+        float minX = Math.min(x, x + w);
+        float minY = Math.min(y, y + h);
+        float maxX = Math.max(x, x + w);
+        float maxY = Math.max(y, y + h);
+        float pad = Math.max(Math.abs(w), Math.abs(h));
+        out[0] = minX - pad;
+        out[1] = minY - pad;
+        out[2] = maxX + pad;
+        out[3] = maxY + pad;
+        return true;
+    }
+    
     public void destroy() {
         this.active = false;
         for (Component<?> component : components) {
@@ -94,4 +131,21 @@ public class GameObject {
     public void setName(String name) {
         this.name = name;
     }
+    
+    public int getLayer() {
+        return layer;
+    }
+    
+    // 需在加入场景前设置，静态图层依据增删对象来判断缓存是否失效
+    public void setLayer(int layer) {
+        this.layer = layer;
+    }
+    
+    public int getZ() {
+        return z;
+    }
+    
+    public void setZ(int z) {
+        this.z = z;
+    }
 }
@@ -0,0 +1,240 @@
+package com.gameengine.core;
+
+import com.gameengine.graphics.IRenderer;
+import com.gameengine.math.Vector2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Engine-owned particle subsystem. Each named preset owns one ParticleSystem pool
+ * built from its Config; scenes look up an Emitter handle once and emit into it.
+ * update() and render() walk the pools in registration order, so every scene pays
+ * for particles in one batched pass and gets identical visuals for a preset.
+ *
+ * All presets share one particle budget. As the live count nears the budget or the
+ * frame time passes the threshold, pressure rises from 0 to 1. Low-priority
+ * emitters are thinned first, then higher ones, and thinned emitters also spawn
+ * smaller particles. Nothing is ever emitted past the budget.
+ */
+public class ParticleService {
+    public static final String TRAIL = "trail";
+    public static final String EXPLOSION = "explosion";
+    public static final int DEFAULT_BUDGET = 6000;
+    
+    // 负载超过预算的该比例后开始降级
+    private static final float SOFT_LIMIT = 0.6f;
+    
+    public final class Emitter {
+        private final String name;
+        private final ParticleSystem pool;
+        private int priority;
+        private float keep;
+        private float carry;
+        
+        private Emitter(String name, ParticleSystem pool, int priority) {
+            this.name = name;
+            this.pool = pool;
+            this.priority = priority;
+            this.keep = 1f;
+        }
+        
+        public void burst(float x, float y, int count, float r, float g, float b) {
+            int n = admit(count);
+            if (n > 0) pool.burst(x, y, n, r, g, b);
+        }
+        
+        public void burst(Vector2 position, int count, float r, float g, float b) {
+            burst(position.x, position.y, count, r, g, b);
+        }
+        
+        public void trail(float x, float y, float sourceVx, float sourceVy, float r, float g, float b) {
+            if (admit(1) > 0) pool.trail(x, y, sourceVx, sourceVy, r, g, b);
+        }
+        
+        public void trail(Vector2 position, Vector2 sourceVelocity, float r, float g, float b) {
+            trail(position.x, position.y, sourceVelocity.x, sourceVelocity.y, r, g, b);
+        }
+        
+        // 按保留比例累积小数部分，低保留率下单粒子发射（拖尾）也能均匀抽稀
+        private int admit(int requested) {
+            carry += requested * keep;
+            int n = (int) carry;
+            carry -= n;
+            // 同时受共享预算与本池容量限制，池满时放不下的同样计入丢弃
+            int room = Math.min(budget - liveCount, pool.getCapacity() - pool.getParticleCount());
+            if (n > room) n = Math.max(0, room);
+            dropped += requested - n;
+            liveCount += n;
+            return n;
+        }
+        
+        public void setPriority(int priority) {
+            this.priority = priority;
+        }
+        
+        public int getPriority() {
+            return priority;
+        }
+        
+        public float getKeepFraction() {
+            return keep;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public int getParticleCount() {
+            return pool.getParticleCount();
+        }
+    }
+    
+    private IRenderer renderer;
+    private final WorkerPool workerPool;
+    private final Map<String, Emitter> emitters;
+    private final List<Emitter> order;
+    private int budget;
+    private float frameTimeThreshold;
+    private float smoothedFrameTime;
+    private float pressure;
+    private int liveCount;
+    private long dropped;
+    
+    public ParticleService(IRenderer renderer) {
+        this(renderer, null);
+    }
+    
+    public ParticleService(IRenderer renderer, WorkerPool workerPool) {
+        this.renderer = renderer;
+        this.workerPool = workerPool;
+        this.emitters = new HashMap<>();
+        this.order = new ArrayList<>();
+        this.budget = DEFAULT_BUDGET;
+        this.frameTimeThreshold = 1f / 40f;
+        // 每个内置池都能单独用满默认预算
+        ParticleSystem.Config trail = ParticleSystem.Config.trail();
+        trail.capacity = DEFAULT_BUDGET;
+        ParticleSystem.Config explosion = ParticleSystem.Config.explosion();
+        explosion.capacity = DEFAULT_BUDGET;
+        register(TRAIL, trail, 0);
+        register(EXPLOSION, explosion, 10);
+    }
+    
+    public void setRenderer(IRenderer renderer) {
+        this.renderer = renderer;
+        for (int i = 0; i < order.size(); i++) {
+            order.get(i).pool.setRenderer(renderer);
+        }
+    }
+    
+    public Emitter register(String name, ParticleSystem.Config config) {
+        return register(name, config, 0);
+    }
+    
+    // priority 越高越晚被抽稀
+    public Emitter register(String name, ParticleSystem.Config config, int priority) {
+        if (emitters.containsKey(name)) {
+            throw new IllegalArgumentException("粒子预设已存在: " + name);
+        }
+        ParticleSystem pool = new ParticleSystem(renderer, new Vector2(), config);
+        // 服务内的池只接受显式发射，不自行按 spawnRate 生成
+        pool.setActive(false);
+        pool.clear();
+        pool.setWorkerPool(workerPool);
+        Emitter emitter = new Emitter(name, pool, priority);
+        emitters.put(name, emitter);
+        order.add(emitter);
+        return emitter;
+    }
+    
+    public Emitter emitter(String name) {
+        Emitter emitter = emitters.get(name);
+        if (emitter == null) {
+            throw new IllegalArgumentException("未知的粒子预设: " + name);
+        }
+        return emitter;
+    }
+    
+    public void setBudget(int budget) {
+        this.budget = Math.max(0, budget);
+    }
+    
+    // 平滑后的帧时间超过该阈值（秒）时同样触发降级，达到两倍阈值时压力为 1
+    public void setFrameTimeThreshold(float seconds) {
+        this.frameTimeThreshold = Math.max(0.001f, seconds);
+    }
+    
+    public void update(float deltaTime) {
+        int total = 0;
+        for (int i = 0; i < order.size(); i++) {
+            ParticleSystem pool = order.get(i).pool;
+            pool.update(deltaTime);
+            total += pool.getParticleCount();
+        }
+        liveCount = total;
+        
+        smoothedFrameTime += (deltaTime - smoothedFrameTime) * 0.1f;
+        float load = budget > 0 ? (float) total / budget : 1f;
+        float loadPressure = clamp01((load - SOFT_LIMIT) / (1f - SOFT_LIMIT));
+        float framePressure = clamp01((smoothedFrameTime - frameTimeThreshold) / frameTimeThreshold);
+        pressure = Math.max(loadPressure, framePressure);
+        rebalance();
+    }
+    
+    // 按优先级排名分配降级起点：排名越低越早开始抽稀，压力为 1 时全部停止新发射
+    private void rebalance() {
+        int n = order.size();
+        for (int i = 0; i < n; i++) {
+            Emitter e = order.get(i);
+            int lower = 0;
+            for (int j = 0; j < n; j++) {
+                if (order.get(j).priority < e.priority) lower++;
+            }
+            float start = (float) lower / n;
+            e.keep = 1f - clamp01((pressure - start) / (1f - start));
+            e.pool.setSizeScale(0.5f + 0.5f * e.keep);
+        }
+    }
+    
+    private static float clamp01(float v) {
+        return v < 0 ? 0 : (v > 1 ? 1 : v);
+    }
+    
+    public void render() {
+        for (int i = 0; i < order.size(); i++) {
+            order.get(i).pool.render();
+        }
+    }
+    
+    public void clear() {
+        for (int i = 0; i < order.size(); i++) {
+            Emitter e = order.get(i);
+            e.pool.clear();
+            e.carry = 0;
+        }
+        liveCount = 0;
+    }
+    
+    public void publishMetrics(EngineMetrics metrics) {
+        metrics.setParticleStats(liveCount, budget, pressure, dropped);
+    }
+    
+    public int getParticleCount() {
+        return liveCount;
+    }
+    
+    public int getBudget() {
+        return budget;
+    }
+    
+    public float getPressure() {
+        return pressure;
+    }
+    
+    public long getDroppedCount() {
+        return dropped;
+    }
+}
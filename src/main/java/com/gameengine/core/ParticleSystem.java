@@ -1,83 +1,67 @@
 package com.gameengine.core;
 
 import com.gameengine.graphics.IRenderer;
+import com.gameengine.math.FastMath;
 import com.gameengine.math.Vector2;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Iterator;
 import java.util.Random;
+import java.util.function.IntConsumer;
 
+/**
+ * Fixed-capacity particle pool stored as parallel primitive arrays. Live particles
+ * occupy indices [0, count); a dying particle is replaced by the last live one, so
+ * update and render walk a dense range and nothing is allocated after construction.
+ * Emitting into a full pool drops the new particle.
+ *
+ * With a WorkerPool attached, large pools update in chunks on the workers and are
+ * compacted into a second set of arrays using per-chunk offsets from a prefix sum.
+ * Compaction keeps the order of survivors, so the result does not depend on the
+ * number of workers.
+ */
 public class ParticleSystem {
-    private List<Particle> particles;
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final int CHUNK_SIZE = 2048;
+    
+    private static final int ATTRIBUTE_COUNT = 11;
+    private static final int X = 0, Y = 1, VX = 2, VY = 3, LIFE = 4, MAX_LIFE = 5,
+                             SIZE = 6, R = 7, G = 8, B = 9, A = 10;
+    
+    private final int capacity;
+    private float[][] attributes;
+    private float[][] spareAttributes;
+    private float[] x;
+    private float[] y;
+    private float[] vx;
+    private float[] vy;
+    private float[] life;
+    private float[] maxLife;
+    private float[] size;
+    private float[] r;
+    private float[] g;
+    private float[] b;
+    private float[] a;
+    private int count;
+    
+    // 并行更新状态：分块存活数与前缀和偏移，任务对象预先创建以避免每帧分配
+    private WorkerPool workerPool;
+    private int[] chunkAlive;
+    private int[] chunkOffset;
+    private float stepDeltaTime;
+    private final IntConsumer integrateChunk = this::integrateChunk;
+    private final IntConsumer compactChunk = this::compactChunk;
+    
     private Random random;
     private IRenderer renderer;
     private float spawnRate;
     private float timeSinceLastSpawn;
-    private Vector2 position;
+    private float positionX;
+    private float positionY;
     private boolean active;
+    private float sizeScale = 1.0f;
     
     private Config config;
     
-    private static class Particle {
-        private Vector2 position;
-        private Vector2 velocity;
-        private float life;
-        private float maxLife;
-        private float size;
-        private float r, g, b, a;
-        
-        public Particle(Vector2 position, Vector2 velocity, float life, float size, float r, float g, float b) {
-            this.position = new Vector2(position);
-            this.velocity = new Vector2(velocity);
-            this.maxLife = life;
-            this.life = life;
-            this.size = size;
-            this.r = r;
-            this.g = g;
-            this.b = b;
-            this.a = 1.0f;
-        }
-        
-        public void update(float deltaTime) {
-            position = position.add(velocity.multiply(deltaTime));
-            life -= deltaTime;
-            
-            if (life > 0) {
-                a = life / maxLife;
-                velocity = velocity.multiply(0.98f);
-            }
-        }
-        
-        public boolean isAlive() {
-            return life > 0;
-        }
-        
-        public Vector2 getPosition() {
-            return new Vector2(position);
-        }
-        
-        public float getSize() {
-            return size;
-        }
-        
-        public float getR() {
-            return r;
-        }
-        
-        public float getG() {
-            return g;
-        }
-        
-        public float getB() {
-            return b;
-        }
-        
-        public float getA() {
-            return a;
-        }
-    }
-    
     public static class Config {
+        public int capacity = DEFAULT_CAPACITY;
         public float spawnRate = 0.015f;
         public int initialCount = 30;
         public float speedMin = 40f;
@@ -91,6 +75,12 @@ public class ParticleSystem {
         public float b = 0.0f;
         public float opacityMultiplier = 1.0f;
         public float minRenderSize = 2.0f;
+        // 每次 update 的速度衰减系数；shrink 为 true 时渲染尺寸随透明度缩小
+        public float drag = 0.98f;
+        public boolean shrink = true;
+        // 拖尾粒子继承发射体速度的比例，以及附加的随机扰动幅度
+        public float inheritVelocity = -0.1f;
+        public float jitter = 20f;
         
         public float burstSpeedMin = 80f;
         public float burstSpeedMax = 200f;
@@ -138,6 +128,32 @@ public class ParticleSystem {
             config.minRenderSize = 1.5f;
             return config;
         }
+        
+        public static Config trail() {
+            Config config = new Config();
+            config.initialCount = 0;
+            config.lifeMin = 0.3f;
+            config.lifeMax = 0.3f;
+            config.sizeMin = 4f;
+            config.sizeMax = 4f;
+            config.drag = 1.0f;
+            config.shrink = false;
+            return config;
+        }
+        
+        public static Config explosion() {
+            Config config = new Config();
+            config.initialCount = 0;
+            config.burstSpeedMin = 50f;
+            config.burstSpeedMax = 150f;
+            config.burstLifeMin = 0.5f;
+            config.burstLifeMax = 1.0f;
+            config.burstSizeMin = 4f;
+            config.burstSizeMax = 4f;
+            config.drag = 1.0f;
+            config.shrink = false;
+            return config;
+        }
     }
     
     public ParticleSystem(IRenderer renderer, Vector2 position) {
@@ -145,10 +161,15 @@ public class ParticleSystem {
     }
     
     public ParticleSystem(IRenderer renderer, Vector2 position, Config config) {
-        this.particles = new ArrayList<>();
+        this.capacity = Math.max(1, config.capacity);
+        this.attributes = new float[ATTRIBUTE_COUNT][capacity];
+        this.count = 0;
+        bindAttributes();
+        
         this.random = new Random();
         this.renderer = renderer;
-        this.position = new Vector2(position);
+        this.positionX = position.x;
+        this.positionY = position.y;
         this.config = config;
         this.spawnRate = config.spawnRate;
         this.timeSinceLastSpawn = 0f;
@@ -159,16 +180,53 @@ public class ParticleSystem {
         }
     }
     
+    private void bindAttributes() {
+        x = attributes[X];
+        y = attributes[Y];
+        vx = attributes[VX];
+        vy = attributes[VY];
+        life = attributes[LIFE];
+        maxLife = attributes[MAX_LIFE];
+        size = attributes[SIZE];
+        r = attributes[R];
+        g = attributes[G];
+        b = attributes[B];
+        a = attributes[A];
+    }
+    
+    /**
+     * Enables chunked parallel update. The second set of arrays used for
+     * compaction is allocated here, so pools that stay serial pay nothing.
+     */
+    public void setWorkerPool(WorkerPool workerPool) {
+        this.workerPool = workerPool;
+        if (workerPool != null && spareAttributes == null && capacity > CHUNK_SIZE) {
+            int chunks = (capacity + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            spareAttributes = new float[ATTRIBUTE_COUNT][capacity];
+            chunkAlive = new int[chunks];
+            chunkOffset = new int[chunks];
+        }
+    }
+    
+    public void setRenderer(IRenderer renderer) {
+        this.renderer = renderer;
+    }
+    
     public void setActive(boolean active) {
         this.active = active;
     }
     
     public void setPosition(Vector2 position) {
         if (position != null) {
-            this.position = new Vector2(position);
+            setPosition(position.x, position.y);
         }
     }
     
+    public void setPosition(float x, float y) {
+        this.positionX = x;
+        this.positionY = y;
+    }
+    
     public void update(float deltaTime) {
         if (active) {
             timeSinceLastSpawn += deltaTime;
@@ -178,42 +236,155 @@ public class ParticleSystem {
             }
         }
         
-        Iterator<Particle> iterator = particles.iterator();
-        while (iterator.hasNext()) {
-            Particle particle = iterator.next();
-            particle.update(deltaTime);
-            if (!particle.isAlive()) {
-                iterator.remove();
+        if (workerPool != null && spareAttributes != null && count > CHUNK_SIZE) {
+            updateParallel(deltaTime);
+            return;
+        }
+        
+        float drag = config.drag;
+        int i = 0;
+        while (i < count) {
+            float remaining = life[i] - deltaTime;
+            if (remaining <= 0) {
+                // 与末尾的存活粒子交换，不移动其余元素；换过来的粒子本帧仍需更新
+                removeAt(i);
+                continue;
             }
+            x[i] += vx[i] * deltaTime;
+            y[i] += vy[i] * deltaTime;
+            life[i] = remaining;
+            a[i] = remaining / maxLife[i];
+            vx[i] *= drag;
+            vy[i] *= drag;
+            i++;
         }
     }
     
-    private void spawnParticle() {
-        if (position == null) return;
+    private void updateParallel(float deltaTime) {
+        int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        stepDeltaTime = deltaTime;
+        workerPool.parallelFor(chunks, integrateChunk);
         
-        float angle = (float) (random.nextFloat() * 2.0 * Math.PI);
+        // 分块存活数的前缀和给出每块在新数组中的写入起点
+        int total = 0;
+        for (int c = 0; c < chunks; c++) {
+            chunkOffset[c] = total;
+            total += chunkAlive[c];
+        }
+        
+        workerPool.parallelFor(chunks, compactChunk);
+        
+        float[][] swap = attributes;
+        attributes = spareAttributes;
+        spareAttributes = swap;
+        bindAttributes();
+        count = total;
+    }
+    
+    // 原地积分并统计存活数；死亡粒子的 life 保持 <= 0 以便压缩时跳过
+    private void integrateChunk(int chunk) {
+        int start = chunk * CHUNK_SIZE;
+        int end = Math.min(count, start + CHUNK_SIZE);
+        float dt = stepDeltaTime;
+        float drag = config.drag;
+        int alive = 0;
+        for (int i = start; i < end; i++) {
+            float remaining = life[i] - dt;
+            life[i] = remaining;
+            if (remaining <= 0) continue;
+            x[i] += vx[i] * dt;
+            y[i] += vy[i] * dt;
+            a[i] = remaining / maxLife[i];
+            vx[i] *= drag;
+            vy[i] *= drag;
+            alive++;
+        }
+        chunkAlive[chunk] = alive;
+    }
+    
+    // 按连续存活区间整段拷贝到备用数组的 chunkOffset 位置
+    private void compactChunk(int chunk) {
+        int start = chunk * CHUNK_SIZE;
+        int end = Math.min(count, start + CHUNK_SIZE);
+        int out = chunkOffset[chunk];
+        float[][] src = attributes;
+        float[][] dst = spareAttributes;
+        int i = start;
+        while (i < end) {
+            if (life[i] <= 0) {
+                i++;
+                continue;
+            }
+            int runStart = i;
+            while (i < end && life[i] > 0) i++;
+            int runLength = i - runStart;
+            for (int k = 0; k < ATTRIBUTE_COUNT; k++) {
+                System.arraycopy(src[k], runStart, dst[k], out, runLength);
+            }
+            out += runLength;
+        }
+    }
+    
+    /**
+     * Adds one particle. Returns false when the pool is full.
+     */
+    public boolean emit(float px, float py, float pvx, float pvy, float plife, float psize, float pr, float pg, float pb) {
+        if (count >= capacity || plife <= 0) return false;
+        int i = count++;
+        x[i] = px;
+        y[i] = py;
+        vx[i] = pvx;
+        vy[i] = pvy;
+        life[i] = plife;
+        maxLife[i] = plife;
+        size[i] = psize * sizeScale;
+        r[i] = pr;
+        g[i] = pg;
+        b[i] = pb;
+        a[i] = 1.0f;
+        return true;
+    }
+    
+    private void removeAt(int i) {
+        int last = --count;
+        if (i == last) return;
+        x[i] = x[last];
+        y[i] = y[last];
+        vx[i] = vx[last];
+        vy[i] = vy[last];
+        life[i] = life[last];
+        maxLife[i] = maxLife[last];
+        size[i] = size[last];
+        r[i] = r[last];
+        g[i] = g[last];
+        b[i] = b[last];
+        a[i] = a[last];
+    }
+    
+    private void spawnParticle() {
+        float angle = random.nextFloat() * FastMath.TWO_PI;
         float speed = config.speedMin + random.nextFloat() * (config.speedMax - config.speedMin);
-        Vector2 velocity = new Vector2(
-            (float) (Math.cos(angle) * speed),
-            (float) (Math.sin(angle) * speed)
-        );
         
-        float life = config.lifeMin + random.nextFloat() * (config.lifeMax - config.lifeMin);
-        float size = config.sizeMin + random.nextFloat() * (config.sizeMax - config.sizeMin);
+        float pl = config.lifeMin + random.nextFloat() * (config.lifeMax - config.lifeMin);
+        float ps = config.sizeMin + random.nextFloat() * (config.sizeMax - config.sizeMin);
         
-        float r = config.r;
-        float g = config.g;
-        float b = config.b;
+        float pr = config.r;
+        float pg = config.g;
+        float pb = config.b;
         
         if (config.r < 1.0f) {
-            r = config.r + random.nextFloat() * 0.2f;
+            pr = config.r + random.nextFloat() * 0.2f;
         }
         if (config.g < 1.0f) {
-            g = config.g + random.nextFloat() * 0.2f;
+            pg = config.g + random.nextFloat() * 0.2f;
         }
         
-        Particle particle = new Particle(new Vector2(position), velocity, life, size, r, g, b);
-        particles.add(particle);
+        emit(positionX, positionY, FastMath.cos(angle) * speed, FastMath.sin(angle) * speed, pl, ps, pr, pg, pb);
+    }
+    
+    // 之后发射的粒子尺寸乘以该系数（用于预算紧张时缩小粒子）
+    public void setSizeScale(float sizeScale) {
+        this.sizeScale = sizeScale;
     }
     
     public void setSpawnRate(float rate) {
@@ -223,57 +394,73 @@ public class ParticleSystem {
     public void render() {
         if (renderer == null) return;
         
-        for (Particle particle : particles) {
-            Vector2 pos = particle.getPosition();
-            float size = particle.getSize();
-            
-            float r = Math.min(1.0f, Math.max(0.0f, particle.getR()));
-            float g = Math.min(1.0f, Math.max(0.0f, particle.getG()));
-            float b = Math.min(1.0f, Math.max(0.0f, particle.getB()));
-            float a = Math.min(1.0f, Math.max(0.0f, particle.getA())) * config.opacityMultiplier;
+        float maxW = renderer.getWidth();
+        float maxH = renderer.getHeight();
+        for (int i = 0; i < count; i++) {
+            float px = x[i];
+            float py = y[i];
+            float pa = Math.min(1.0f, Math.max(0.0f, a[i])) * config.opacityMultiplier;
+            if (pa <= 0.01f || px < -50 || px > maxW + 50 || py < -50 || py > maxH + 50) continue;
             
-            float maxW = renderer != null ? renderer.getWidth() : 1920;
-            float maxH = renderer != null ? renderer.getHeight() : 1080;
-            if (a > 0.01f && pos.x >= -50 && pos.x <= maxW + 50 && pos.y >= -50 && pos.y <= maxH + 50) {
-                float renderSize = Math.max(config.minRenderSize, size * a);
-                try {
-                    renderer.drawRect(
-                        pos.x - renderSize * 0.5f, pos.y - renderSize * 0.5f, 
-                        renderSize, renderSize,
-                        r, g, b, a
-                    );
-                } catch (Exception e) {
-                }
-            }
+            float pr = Math.min(1.0f, Math.max(0.0f, r[i]));
+            float pg = Math.min(1.0f, Math.max(0.0f, g[i]));
+            float pb = Math.min(1.0f, Math.max(0.0f, b[i]));
+            float renderSize = config.shrink ? Math.max(config.minRenderSize, size[i] * pa) : size[i];
+            renderer.drawRect(
+                px - renderSize * 0.5f, py - renderSize * 0.5f,
+                renderSize, renderSize,
+                pr, pg, pb, pa
+            );
         }
     }
     
-    public void burst(int count) {
-        for (int i = 0; i < count; i++) {
-            float angle = (float) (random.nextFloat() * 2.0 * Math.PI);
+    public void burst(int burstCount) {
+        for (int i = 0; i < burstCount; i++) {
+            float angle = random.nextFloat() * FastMath.TWO_PI;
             float speed = config.burstSpeedMin + random.nextFloat() * (config.burstSpeedMax - config.burstSpeedMin);
-            Vector2 velocity = new Vector2(
-                (float) (Math.cos(angle) * speed),
-                (float) (Math.sin(angle) * speed)
-            );
-            
-            float life = config.burstLifeMin + random.nextFloat() * (config.burstLifeMax - config.burstLifeMin);
-            float size = config.burstSizeMin + random.nextFloat() * (config.burstSizeMax - config.burstSizeMin);
             
-            float r = config.burstR;
-            float g = config.burstGMin + random.nextFloat() * (config.burstGMax - config.burstGMin);
-            float b = config.burstB;
+            float pl = config.burstLifeMin + random.nextFloat() * (config.burstLifeMax - config.burstLifeMin);
+            float ps = config.burstSizeMin + random.nextFloat() * (config.burstSizeMax - config.burstSizeMin);
+            float pg = config.burstGMin + random.nextFloat() * (config.burstGMax - config.burstGMin);
             
-            Particle particle = new Particle(new Vector2(position), velocity, life, size, r, g, b);
-            particles.add(particle);
+            if (!emit(positionX, positionY, FastMath.cos(angle) * speed, FastMath.sin(angle) * speed,
+                      pl, ps, config.burstR, pg, config.burstB)) {
+                break;
+            }
+        }
+    }
+    
+    // 在指定位置按配置的 burst 参数爆发，颜色由调用方指定
+    public void burst(float px, float py, int burstCount, float pr, float pg, float pb) {
+        for (int i = 0; i < burstCount; i++) {
+            float angle = random.nextFloat() * FastMath.TWO_PI;
+            float speed = config.burstSpeedMin + random.nextFloat() * (config.burstSpeedMax - config.burstSpeedMin);
+            float pl = config.burstLifeMin + random.nextFloat() * (config.burstLifeMax - config.burstLifeMin);
+            float ps = config.burstSizeMin + random.nextFloat() * (config.burstSizeMax - config.burstSizeMin);
+            if (!emit(px, py, FastMath.cos(angle) * speed, FastMath.sin(angle) * speed, pl, ps, pr, pg, pb)) {
+                break;
+            }
         }
     }
     
+    // 发射一个拖尾粒子：继承发射体速度的一部分并加上随机扰动
+    public void trail(float px, float py, float sourceVx, float sourceVy, float pr, float pg, float pb) {
+        float pvx = sourceVx * config.inheritVelocity + (random.nextFloat() - 0.5f) * config.jitter;
+        float pvy = sourceVy * config.inheritVelocity + (random.nextFloat() - 0.5f) * config.jitter;
+        float pl = config.lifeMin + random.nextFloat() * (config.lifeMax - config.lifeMin);
+        float ps = config.sizeMin + random.nextFloat() * (config.sizeMax - config.sizeMin);
+        emit(px, py, pvx, pvy, pl, ps, pr, pg, pb);
+    }
+    
     public int getParticleCount() {
-        return particles.size();
+        return count;
+    }
+    
+    public int getCapacity() {
+        return capacity;
     }
     
     public void clear() {
-        particles.clear();
+        count = 0;
     }
 }
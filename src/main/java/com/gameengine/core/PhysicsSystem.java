@@ -1,111 +1,247 @@
 package com.gameengine.core;
 
 import com.gameengine.components.TransformComponent;
+import com.gameengine.components.ForceFieldComponent;
 import com.gameengine.components.PhysicsComponent;
-import com.gameengine.math.Vector2;
 import com.gameengine.scene.Scene;
 
 import java.util.List;
 import java.util.ArrayList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
+import java.util.Arrays;
 
 public class PhysicsSystem {
+    // 固定分块大小：分块方式只取决于物体数量，与线程数无关，保证多核结果逐位一致
+    public static final int CHUNK_SIZE = 64;
+    private static final float FIELD_CELL_SIZE = 128f;
+    
     private Scene scene;
-    private ExecutorService physicsExecutor;
+    private WorkerPool workerPool;
+    private boolean ownsWorkerPool;
     private int screenWidth;
     private int screenHeight;
+    private final List<PhysicsComponent> bodies;
+    private int bodiesVersion;
+    // 每块独立的统计槽位，主线程按块顺序归约，没有共享的可变累加器
+    private int[] chunkAwake;
+    private int awakeBodyCount;
+    // 力场按覆盖范围放入网格；物体只查询所在格子的力场，一次遍历叠加所有重叠力场
+    private final List<ForceFieldComponent> fields;
+    private final SpatialGrid fieldGrid;
+    private ForceFieldComponent[] activeFields;
+    private float[] fieldX;
+    private float[] fieldY;
+    private int activeFieldCount;
+    private int[] unboundedFields;
+    private int unboundedFieldCount;
+    private CaptureBuffer[] chunkCaptures;
     
     public PhysicsSystem(Scene scene) {
         this(scene, 1920, 1080);
     }
     
     public PhysicsSystem(Scene scene, int screenWidth, int screenHeight) {
+        this(scene, screenWidth, screenHeight, WorkerPool.createDefault());
+        this.ownsWorkerPool = true;
+    }
+    
+    public PhysicsSystem(Scene scene, int screenWidth, int screenHeight, WorkerPool workerPool) {
         this.scene = scene;
         this.screenWidth = screenWidth;
         this.screenHeight = screenHeight;
-        int threadCount = Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
-        this.physicsExecutor = Executors.newFixedThreadPool(threadCount);
+        this.workerPool = workerPool;
+        this.ownsWorkerPool = false;
+        this.bodies = new ArrayList<>();
+        this.bodiesVersion = -1;
+        this.chunkAwake = new int[0];
+        this.fields = new ArrayList<>();
+        this.fieldGrid = new SpatialGrid(screenWidth, screenHeight, FIELD_CELL_SIZE);
+        this.activeFields = new ForceFieldComponent[0];
+        this.fieldX = new float[0];
+        this.fieldY = new float[0];
+        this.unboundedFields = new int[0];
+        this.chunkCaptures = new CaptureBuffer[0];
     }
     
     public void update(float deltaTime) {
-        List<PhysicsComponent> physicsComponents = scene.getComponents(PhysicsComponent.class);
-        if (physicsComponents.isEmpty()) return;
+        refreshBodies();
+        prepareFields();
+        List<PhysicsComponent> bodies = this.bodies;
+        int bodyCount = bodies.size();
+        if (bodyCount == 0) {
+            awakeBodyCount = 0;
+            return;
+        }
         
-        int threadCount = Runtime.getRuntime().availableProcessors() - 1;
-        threadCount = Math.max(2, threadCount);
-        int batchSize = Math.max(1, physicsComponents.size() / threadCount + 1);
+        int chunkCount = (bodyCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (chunkAwake.length < chunkCount) {
+            chunkAwake = new int[chunkCount];
+            CaptureBuffer[] grown = Arrays.copyOf(chunkCaptures, chunkCount);
+            for (int i = chunkCaptures.length; i < chunkCount; i++) {
+                grown[i] = new CaptureBuffer();
+            }
+            chunkCaptures = grown;
+        }
+        final int[] awake = chunkAwake;
+        final CaptureBuffer[] captures = chunkCaptures;
         
-        List<Future<?>> futures = new ArrayList<>();
+        // 每个物体只读写自身状态，块内按列表顺序处理；块由哪个线程执行不影响结果
+        workerPool.parallelFor(chunkCount, chunk -> {
+            int start = chunk * CHUNK_SIZE;
+            int end = Math.min(start + CHUNK_SIZE, bodyCount);
+            CaptureBuffer chunkCapture = captures[chunk];
+            chunkCapture.size = 0;
+            int count = 0;
+            for (int j = start; j < end; j++) {
+                if (stepBody(bodies.get(j), deltaTime, chunkCapture)) count++;
+            }
+            awake[chunk] = count;
+        });
         
-        for (int i = 0; i < physicsComponents.size(); i += batchSize) {
-            final int start = i;
-            final int end = Math.min(i + batchSize, physicsComponents.size());
-            
-            Future<?> future = physicsExecutor.submit(() -> {
-                for (int j = start; j < end; j++) {
-                    PhysicsComponent physics = physicsComponents.get(j);
-                    if (physics.isEnabled()) {
-                        updatePhysics(physics, deltaTime);
-                        handleBoundary(physics);
-                    }
-                }
-            });
-            
-            futures.add(future);
+        int total = 0;
+        for (int i = 0; i < chunkCount; i++) {
+            total += awake[i];
+            CaptureBuffer chunkCapture = captures[i];
+            for (int c = 0; c < chunkCapture.size; c++) {
+                activeFields[chunkCapture.fields[c]].addCaptured(chunkCapture.objects[c]);
+            }
         }
-        
-        for (Future<?> future : futures) {
-            try {
-                future.get();
-            } catch (Exception e) {
-                e.printStackTrace();
+        awakeBodyCount = total;
+    }
+    
+    // 每步开始时快照力场中心并重建力场网格（力场数量远小于物体数量）
+    private void prepareFields() {
+        int fieldCount = fields.size();
+        if (activeFields.length < fieldCount) {
+            activeFields = new ForceFieldComponent[fieldCount];
+            fieldX = new float[fieldCount];
+            fieldY = new float[fieldCount];
+            unboundedFields = new int[fieldCount];
+        }
+        fieldGrid.clear();
+        activeFieldCount = 0;
+        unboundedFieldCount = 0;
+        for (ForceFieldComponent field : fields) {
+            field.clearCaptured();
+            GameObject owner = field.getOwner();
+            if (!field.isEnabled() || owner == null || !owner.isActive()) continue;
+            TransformComponent transform = owner.getComponent(TransformComponent.class);
+            if (transform == null) continue;
+            
+            int k = activeFieldCount++;
+            activeFields[k] = field;
+            fieldX[k] = transform.getX();
+            fieldY[k] = transform.getY();
+            if (field.isUnbounded()) {
+                unboundedFields[unboundedFieldCount++] = k;
+            } else {
+                float r = field.getRadius();
+                fieldGrid.insert(k, fieldX[k] - r, fieldY[k] - r, fieldX[k] + r, fieldY[k] + r);
             }
         }
     }
     
-    private void updatePhysics(PhysicsComponent physics, float deltaTime) {
+    // 仅在场景对象集合变化时重建物体列表；静态标记随时可能改变，由 stepBody 逐帧判断
+    private void refreshBodies() {
+        int version = scene.getStructureVersion();
+        if (version == bodiesVersion) return;
+        bodiesVersion = version;
+        bodies.clear();
+        bodies.addAll(scene.getComponents(PhysicsComponent.class));
+        fields.clear();
+        fields.addAll(scene.getComponents(ForceFieldComponent.class));
+    }
+    
+    private boolean stepBody(PhysicsComponent physics, float deltaTime, CaptureBuffer captures) {
+        if (!physics.isEnabled() || physics.isStatic()) return false;
+        if (physics.isSleeping() && activeFieldCount == 0) return false;
         GameObject owner = physics.getOwner();
-        if (owner == null) return;
+        if (owner == null) return false;
         
         TransformComponent transform = owner.getComponent(TransformComponent.class);
-        if (transform == null) return;
+        if (transform == null) return false;
         
-        Vector2 acceleration = physics.getAcceleration();
+        if (activeFieldCount > 0) {
+            applyFields(physics, owner, transform.getX(), transform.getY(), captures);
+        }
+        if (physics.isSleeping()) return false;
+        
+        updatePhysics(physics, transform, deltaTime);
+        handleBoundary(physics, transform);
+        physics.updateSleep(deltaTime);
+        physics.clearAcceleration();
+        return !physics.isSleeping();
+    }
+    
+    private void applyFields(PhysicsComponent physics, GameObject owner, float x, float y, CaptureBuffer captures) {
+        float ax = 0;
+        float ay = 0;
+        int cell = fieldGrid.cellAt(x, y);
+        int cellCount = fieldGrid.getCount(cell);
+        int total = cellCount + unboundedFieldCount;
+        for (int i = 0; i < total; i++) {
+            int k = i < cellCount ? fieldGrid.getItem(cell, i) : unboundedFields[i - cellCount];
+            ForceFieldComponent field = activeFields[k];
+            if (!field.affects(owner)) continue;
+            
+            float dx = fieldX[k] - x;
+            float dy = fieldY[k] - y;
+            float distSq = dx * dx + dy * dy;
+            float radius = field.getRadius();
+            boolean unbounded = field.isUnbounded();
+            if (!unbounded && distSq > radius * radius) continue;
+            
+            if (field.getType() == ForceFieldComponent.FieldType.WIND) {
+                ax += field.getDirectionX() * field.getStrength();
+                ay += field.getDirectionY() * field.getStrength();
+                continue;
+            }
+            
+            float dist = (float) Math.sqrt(distSq);
+            if (dist < field.getCaptureRadius()) {
+                captures.add(k, owner);
+            }
+            if (dist <= 0) continue;
+            float falloff = unbounded ? 1f : 1f - dist / radius;
+            float magnitude = field.getStrength() * falloff / dist;
+            if (field.getType() == ForceFieldComponent.FieldType.REPULSOR) {
+                magnitude = -magnitude;
+            }
+            ax += dx * magnitude;
+            ay += dy * magnitude;
+        }
+        if (ax != 0 || ay != 0) {
+            physics.addAcceleration(ax, ay);
+        }
+    }
+    
+    private void updatePhysics(PhysicsComponent physics, TransformComponent transform, float deltaTime) {
+        float ax = physics.getAccelerationX();
+        float ay = physics.getAccelerationY();
         
         if (physics.isUseGravity()) {
-            acceleration = acceleration.add(physics.getGravity());
-            physics.setAcceleration(acceleration);
+            ax += physics.getGravityX();
+            ay += physics.getGravityY();
         }
         
-        Vector2 velocity = physics.getVelocity();
-        velocity = velocity.add(acceleration.multiply(deltaTime));
-        velocity = velocity.multiply(physics.getFriction());
-        physics.setVelocity(velocity);
+        float friction = physics.getFriction();
+        float vx = (physics.getVelocityX() + ax * deltaTime) * friction;
+        float vy = (physics.getVelocityY() + ay * deltaTime) * friction;
+        physics.setVelocity(vx, vy);
         
-        Vector2 deltaPosition = velocity.multiply(deltaTime);
-        transform.translate(deltaPosition);
+        if (physics.isContinuous()) {
+            physics.beginSweep(transform.getX(), transform.getY());
+        }
         
-        physics.setAcceleration(new Vector2());
+        transform.translate(vx * deltaTime, vy * deltaTime);
     }
     
-    private void handleBoundary(PhysicsComponent physics) {
-        GameObject owner = physics.getOwner();
-        if (owner == null) return;
-        
-        TransformComponent transform = owner.getComponent(TransformComponent.class);
-        if (transform == null) return;
-        
-        Vector2 pos = transform.getPosition();
-        Vector2 velocity = physics.getVelocity();
+    private void handleBoundary(PhysicsComponent physics, TransformComponent transform) {
+        float posX = transform.getX();
+        float posY = transform.getY();
+        float velX = physics.getVelocityX();
+        float velY = physics.getVelocityY();
         
         boolean velocityChanged = false;
-        float velX = velocity.x;
-        float velY = velocity.y;
-        float posX = pos.x;
-        float posY = pos.y;
         
         if (posX <= 0 || posX >= screenWidth - 15) {
             velX = -velX;
@@ -121,25 +257,45 @@ public class PhysicsSystem {
         if (posX > screenWidth - 15) posX = screenWidth - 15;
         if (posY > screenHeight - 15) posY = screenHeight - 15;
         
-        transform.setPosition(new Vector2(posX, posY));
+        transform.setPosition(posX, posY);
         
         if (velocityChanged) {
-            physics.setVelocity(new Vector2(velX, velY));
+            physics.setVelocity(velX, velY);
         }
     }
     
+    public int getBodyCount() {
+        return bodies.size();
+    }
+    
+    public int getAwakeBodyCount() {
+        return awakeBodyCount;
+    }
+    
+    public int getActiveFieldCount() {
+        return activeFieldCount;
+    }
+    
     public void cleanup() {
-        if (physicsExecutor != null && !physicsExecutor.isShutdown()) {
-            physicsExecutor.shutdown();
-            try {
-                if (!physicsExecutor.awaitTermination(1, TimeUnit.SECONDS)) {
-                    physicsExecutor.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                physicsExecutor.shutdownNow();
-                Thread.currentThread().interrupt();
+        if (ownsWorkerPool && workerPool != null) {
+            workerPool.shutdown();
+        }
+    }
+    
+    // 每块私有的捕获记录，主线程按块顺序合并，保证捕获顺序与线程数无关
+    private static class CaptureBuffer {
+        int[] fields = new int[8];
+        GameObject[] objects = new GameObject[8];
+        int size;
+        
+        void add(int field, GameObject obj) {
+            if (size == fields.length) {
+                fields = Arrays.copyOf(fields, size * 2);
+                objects = Arrays.copyOf(objects, size * 2);
             }
+            fields[size] = field;
+            objects[size] = obj;
+            size++;
         }
     }
 }
-
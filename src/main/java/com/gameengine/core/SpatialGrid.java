@@ -0,0 +1,77 @@
+package com.gameengine.core;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over a fixed area that buckets integer item ids by bounding box.
+ * Cell storage is reused between frames, and items keep insertion order inside a
+ * cell so iteration is deterministic. Points outside the area map to the nearest
+ * border cell; callers do their exact range test after the lookup.
+ */
+public class SpatialGrid {
+    private final float cellSize;
+    private final int columns;
+    private final int rows;
+    private final int[][] cellItems;
+    private final int[] cellCounts;
+    
+    public SpatialGrid(float width, float height, float cellSize) {
+        this.cellSize = cellSize;
+        this.columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        this.cellItems = new int[columns * rows][];
+        this.cellCounts = new int[columns * rows];
+    }
+    
+    public void clear() {
+        Arrays.fill(cellCounts, 0);
+    }
+    
+    public void insert(int item, float minX, float minY, float maxX, float maxY) {
+        int c0 = column(minX);
+        int c1 = column(maxX);
+        int r0 = row(minY);
+        int r1 = row(maxY);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                add(r * columns + c, item);
+            }
+        }
+    }
+    
+    public int cellAt(float x, float y) {
+        return row(y) * columns + column(x);
+    }
+    
+    public int getCount(int cell) {
+        return cellCounts[cell];
+    }
+    
+    public int getItem(int cell, int index) {
+        return cellItems[cell][index];
+    }
+    
+    private void add(int cell, int item) {
+        int[] items = cellItems[cell];
+        int count = cellCounts[cell];
+        if (items == null) {
+            items = new int[4];
+            cellItems[cell] = items;
+        } else if (count == items.length) {
+            items = Arrays.copyOf(items, count * 2);
+            cellItems[cell] = items;
+        }
+        items[count] = item;
+        cellCounts[cell] = count + 1;
+    }
+    
+    private int column(float x) {
+        int c = (int) Math.floor(x / cellSize);
+        return c < 0 ? 0 : (c >= columns ? columns - 1 : c);
+    }
+    
+    private int row(float y) {
+        int r = (int) Math.floor(y / cellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+}
@@ -0,0 +1,115 @@
+package com.gameengine.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Engine-wide worker threads shared by the batch systems (physics, particles...).
+ * Work is expressed as a fixed number of chunks; which thread runs which chunk is
+ * irrelevant to callers, so results never depend on the worker count.
+ */
+public class WorkerPool {
+    private final ExecutorService executor;
+    private final int workerCount;
+    
+    public WorkerPool(int workerCount) {
+        this.workerCount = Math.max(1, workerCount);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.workerCount, r -> {
+            Thread t = new Thread(r, "engine-worker-" + threadIndex.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+    
+    public static WorkerPool createDefault() {
+        return new WorkerPool(Runtime.getRuntime().availableProcessors() - 1);
+    }
+    
+    public int getWorkerCount() {
+        return workerCount;
+    }
+    
+    /**
+     * Runs task(0..chunkCount-1) and blocks until all chunks are done. The calling
+     * thread takes chunks too, so a single chunk never pays a thread handoff.
+     */
+    public void parallelFor(int chunkCount, IntConsumer task) {
+        if (chunkCount <= 0) return;
+        if (chunkCount == 1 || executor.isShutdown()) {
+            for (int i = 0; i < chunkCount; i++) {
+                task.accept(i);
+            }
+            return;
+        }
+        
+        AtomicInteger next = new AtomicInteger();
+        Runnable runner = () -> {
+            int chunk;
+            while ((chunk = next.getAndIncrement()) < chunkCount) {
+                task.accept(chunk);
+            }
+        };
+        
+        int helpers = Math.min(workerCount, chunkCount - 1);
+        List<Future<?>> futures = new ArrayList<>(helpers);
+        for (int i = 0; i < helpers; i++) {
+            futures.add(executor.submit(runner));
+        }
+        runner.run();
+        
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                throw new RuntimeException("worker chunk failed", e.getCause());
+            }
+        }
+    }
+    
+    // 提交一个后台任务，不等待结果；线程池已关闭时直接在当前线程执行
+    public void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+    
+    // 提交一个后台任务并返回 Future；线程池已关闭时在当前线程执行完再返回
+    public Future<?> submit(Runnable task) {
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            FutureTask<?> inline = new FutureTask<>(task, null);
+            inline.run();
+            return inline;
+        }
+    }
+    
+    public void shutdown() {
+        if (!executor.isShutdown()) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -1,14 +1,17 @@
 package com.gameengine.example;
 
+import com.gameengine.components.ForceFieldComponent;
 import com.gameengine.components.PhysicsComponent;
 import com.gameengine.components.RenderComponent;
 import com.gameengine.components.TransformComponent;
+import com.gameengine.core.FlowField;
 import com.gameengine.core.GameEngine;
 import com.gameengine.core.GameLogic;
 import com.gameengine.core.GameObject;
-import com.gameengine.core.ParticleSystem;
+import com.gameengine.core.ParticleService;
 import com.gameengine.graphics.IRenderer;
 import com.gameengine.input.InputManager;
+import com.gameengine.math.Collision;
 import com.gameengine.math.Vector2;
 import com.gameengine.scene.Scene;
 
@@ -21,6 +24,9 @@ public class GameScene extends Scene {
     private Random random;
     // Make ID counter static to avoid ID collisions across restarts in the same recording session
     private static long objectIdCounter = 0;
+    // 背景渐变和星星不会变化，放在静态图层中只绘制一次
+    private static final int BACKGROUND_LAYER = -1;
+    static final int PLAYER_Z = 1;
 
     // Game State
     private int score = 0;
@@ -40,7 +46,10 @@ public class GameScene extends Scene {
     // References
     private GameObject player;
     private GameObject activeBlackHole;
-    private ParticleSystem particleSystem;
+    private ParticleService particles;
+    private ParticleService.Emitter trails;
+    private ParticleService.Emitter explosions;
+    private FlowField flowField;
 
     public GameScene(GameEngine engine) {
         super("GameScene");
@@ -57,8 +66,16 @@ public class GameScene extends Scene {
         this.renderer = engine.getRenderer();
         this.inputManager = engine.getInputManager();
         this.random = new Random();
-        this.particleSystem = new ParticleSystem();
-
+        this.particles = engine.getParticleService();
+        this.trails = particles.emitter(ParticleService.TRAIL);
+        this.explosions = particles.emitter(ParticleService.EXPLOSION);
+        // 敌人共享一张指向玩家的流场，每 6 帧在工作线程上重建一次
+        this.flowField = new FlowField(renderer.getWidth(), renderer.getHeight(), 32);
+        this.flowField.setRebuildInterval(6);
+        this.flowField.setWorkerPool(engine.getWorkerPool());
+
+        setLayerStatic(BACKGROUND_LAYER, true);
+        createBackground();
         createPlayer();
         createInitialEnemies();
         createStars();
@@ -85,8 +102,13 @@ public class GameScene extends Scene {
 
         if (paused) return;
 
+        if (player != null) {
+            TransformComponent ptc = player.getComponent(TransformComponent.class);
+            if (ptc != null) flowField.update(ptc.getX(), ptc.getY());
+        }
+
         super.update(deltaTime);
-        particleSystem.update(deltaTime);
+        particles.update(deltaTime);
 
         if (shootCooldown > 0) shootCooldown -= deltaTime;
         if (slashCooldown > 0) slashCooldown -= deltaTime;
@@ -126,20 +148,27 @@ public class GameScene extends Scene {
 
     @Override
     public void render() {
-        int w = renderer.getWidth();
-        int h = renderer.getHeight();
-        
-        // Background
-        for (int i = 0; i < h; i += 20) {
-            float brightness = 0.05f + (i / (float)h) * 0.1f;
-            renderer.drawRect(0, i, w, 20, brightness * 0.5f, brightness * 0.3f, brightness, 1.0f);
-        }
-
         super.render();
-        particleSystem.render();
+        particles.render();
         renderUI();
     }
 
+    private void createBackground() {
+        GameObject background = new GameObject("Background") {
+            @Override
+            public void render() {
+                int w = renderer.getWidth();
+                int h = renderer.getHeight();
+                for (int i = 0; i < h; i += 20) {
+                    float brightness = 0.05f + (i / (float)h) * 0.1f;
+                    renderer.drawRect(0, i, w, 20, brightness * 0.5f, brightness * 0.3f, brightness, 1.0f);
+                }
+            }
+        };
+        background.setLayer(BACKGROUND_LAYER);
+        addGameObject(background);
+    }
+
     private void createPlayer() {
         player = new GameObject("Player") {
             private float animationTime = 0;
@@ -172,8 +201,12 @@ public class GameScene extends Scene {
         player.addComponent(new TransformComponent(new Vector2(renderer.getWidth()/2f, renderer.getHeight() - 100)));
         PhysicsComponent physics = player.addComponent(new PhysicsComponent(1.0f));
         physics.setFriction(0.85f);
+        // 记录每步起点，敌方子弹与玩家按双方的位移做扫掠检测
+        physics.setContinuous(true);
         // Add dummy render component for recorder
         player.addComponent(new RenderComponent(RenderComponent.RenderType.RECTANGLE, new Vector2(20, 40), new RenderComponent.Color(0,0,0,0)));
+        // 同一图层内画在敌人和子弹之上
+        player.setZ(PLAYER_Z);
         addGameObject(player);
     }
 
@@ -182,12 +215,15 @@ public class GameScene extends Scene {
     }
 
     private void createEnemy() {
+        float speed = 50 + level * 10;
         GameObject enemy = new GameObject(nextId("Enemy")) {
             private float animTime = 0;
+            private final Vector2 flow = new Vector2();
             @Override
             public void update(float deltaTime) {
                 super.update(deltaTime);
                 animTime += deltaTime * 5;
+                steerAlongFlow(this, flow, speed, deltaTime);
             }
             @Override
             public void render() {
@@ -205,13 +241,25 @@ public class GameScene extends Scene {
         Vector2 position = new Vector2(random.nextFloat() * renderer.getWidth(), -30);
         enemy.addComponent(new TransformComponent(position));
         PhysicsComponent physics = enemy.addComponent(new PhysicsComponent(0.5f));
-        float speed = 50 + level * 10;
         physics.setVelocity(new Vector2((random.nextFloat() - 0.5f) * 50, speed + random.nextFloat() * 30));
         physics.setFriction(0.99f);
+        physics.setContinuous(true);
         enemy.addComponent(new RenderComponent(RenderComponent.RenderType.CIRCLE, new Vector2(24, 24), new RenderComponent.Color(0,0,0,0)));
         addGameObject(enemy);
     }
 
+    // 从流场采样方向（O(1)），速度逐渐转向该方向
+    private void steerAlongFlow(GameObject enemy, Vector2 flow, float speed, float deltaTime) {
+        TransformComponent tc = enemy.getComponent(TransformComponent.class);
+        PhysicsComponent pc = enemy.getComponent(PhysicsComponent.class);
+        if (tc == null || pc == null) return;
+        flowField.sample(tc.getX() + 12, tc.getY() + 12, flow);
+        float t = Math.min(1f, deltaTime * 1.5f);
+        float vx = pc.getVelocityX();
+        float vy = pc.getVelocityY();
+        pc.setVelocity(vx + (flow.x * speed - vx) * t, vy + (flow.y * speed - vy) * t);
+    }
+
     private void createBullet(Vector2 position) {
         GameObject bullet = new GameObject(nextId("Bullet")) {
             @Override
@@ -220,7 +268,7 @@ public class GameScene extends Scene {
                 TransformComponent tc = getComponent(TransformComponent.class);
                 PhysicsComponent pc = getComponent(PhysicsComponent.class);
                 if (tc != null && pc != null) {
-                    particleSystem.emitTrail(tc.getPosition(), pc.getVelocity(), 1.0f, 1.0f, 0.0f);
+                    trails.trail(tc.getPosition(), pc.getVelocity(), 1.0f, 1.0f, 0.0f);
                 }
             }
         };
@@ -230,6 +278,7 @@ public class GameScene extends Scene {
         PhysicsComponent physics = bullet.addComponent(new PhysicsComponent(0.1f));
         physics.setVelocity(new Vector2(0, -400));
         physics.setFriction(1.0f);
+        physics.setContinuous(true);
         addGameObject(bullet);
     }
 
@@ -264,6 +313,7 @@ public class GameScene extends Scene {
         for (int i = 0; i < 50; i++) {
             GameObject star = new GameObject(nextId("Star"));
             star.addComponent(new TransformComponent(new Vector2(random.nextFloat() * renderer.getWidth(), random.nextFloat() * renderer.getHeight())));
+            star.setLayer(BACKGROUND_LAYER);
             float b = random.nextFloat() * 0.5f + 0.5f;
             RenderComponent rc = star.addComponent(new RenderComponent(RenderComponent.RenderType.CIRCLE, new Vector2(2, 2), new RenderComponent.Color(b, b, b, 0.8f)));
             rc.setRenderer(renderer);
@@ -338,19 +388,20 @@ public class GameScene extends Scene {
                 if (etc != null && ptc.getPosition().distance(etc.getPosition()) < 30) {
                     loseLife();
                     toDestroy.add(obj);
-                    particleSystem.emitExplosion(etc.getPosition(), 20, 1.0f, 0.3f, 0.3f);
+                    explosions.burst(etc.getPosition(), 20, 1.0f, 0.3f, 0.3f);
                 }
             } else if (name.startsWith("Bullet")) {
                 TransformComponent btc = obj.getComponent(TransformComponent.class);
                 if (btc == null) continue;
+                PhysicsComponent bpc = obj.getComponent(PhysicsComponent.class);
                 for (GameObject enemy : getGameObjects()) {
                     if (!enemy.isActive() || !enemy.getName().startsWith("Enemy") || enemy.getName().startsWith("EnemyBullet")) continue;
                     TransformComponent etc = enemy.getComponent(TransformComponent.class);
-                    if (etc != null && btc.getPosition().distance(etc.getPosition()) < 20) {
+                    if (etc != null && sweptHit(btc, bpc, etc, enemy.getComponent(PhysicsComponent.class), 20)) {
                         addScore(10);
                         toDestroy.add(obj);
                         toDestroy.add(enemy);
-                        particleSystem.emitExplosion(etc.getPosition(), 15, 0.8f, 0.2f, 0.8f);
+                        explosions.burst(etc.getPosition(), 15, 0.8f, 0.2f, 0.8f);
                         break;
                     }
                 }
@@ -359,20 +410,39 @@ public class GameScene extends Scene {
                 if (putc != null && ptc.getPosition().distance(putc.getPosition()) < 35) {
                     addScore(50);
                     toDestroy.add(obj);
-                    particleSystem.emitExplosion(putc.getPosition(), 25, 0.3f, 1.0f, 1.0f);
+                    explosions.burst(putc.getPosition(), 25, 0.3f, 1.0f, 1.0f);
                 }
             } else if (name.startsWith("EnemyBullet")) {
                 TransformComponent btc = obj.getComponent(TransformComponent.class);
-                if (btc != null && ptc.getPosition().distance(btc.getPosition()) < 25) {
+                if (btc != null && sweptHit(btc, obj.getComponent(PhysicsComponent.class), ptc, player.getComponent(PhysicsComponent.class), 25)) {
                     loseLife();
                     toDestroy.add(obj);
-                    particleSystem.emitExplosion(btc.getPosition(), 15, 1.0f, 0.3f, 0.3f);
+                    explosions.burst(btc.getPosition(), 15, 1.0f, 0.3f, 0.3f);
                 }
             }
         }
         for(GameObject o : toDestroy) o.destroy();
     }
 
+    // 高速物体（子弹）与目标都按上一物理步的整段位移做扫掠检测，低帧率下也不会穿透
+    private boolean sweptHit(TransformComponent tc, PhysicsComponent pc,
+                             TransformComponent target, PhysicsComponent targetPc, float radius) {
+        float x1 = tc.getX(), y1 = tc.getY();
+        float tx1 = target.getX(), ty1 = target.getY();
+        boolean sweep = pc != null && pc.isContinuous() && pc.hasSweep();
+        boolean targetSweep = targetPc != null && targetPc.isContinuous() && targetPc.hasSweep();
+        if (!sweep && !targetSweep) {
+            float dx = x1 - tx1, dy = y1 - ty1;
+            return dx * dx + dy * dy < radius * radius;
+        }
+        // 没有扫掠记录的一方视为本步静止
+        float x0 = sweep ? pc.getSweepStartX() : x1;
+        float y0 = sweep ? pc.getSweepStartY() : y1;
+        float tx0 = targetSweep ? targetPc.getSweepStartX() : tx1;
+        float ty0 = targetSweep ? targetPc.getSweepStartY() : ty1;
+        return Collision.sweepCircles(x0, y0, x1, y1, tx0, ty0, tx1, ty1, radius) >= 0;
+    }
+
     private void makeEnemiesShoot() {
         if (player == null) return;
         TransformComponent ptc = player.getComponent(TransformComponent.class);
@@ -392,7 +462,7 @@ public class GameScene extends Scene {
                 super.update(deltaTime);
                 TransformComponent tc = getComponent(TransformComponent.class);
                 PhysicsComponent pc = getComponent(PhysicsComponent.class);
-                if (tc != null && pc != null) particleSystem.emitTrail(tc.getPosition(), pc.getVelocity(), 0.8f, 0.2f, 0.8f);
+                if (tc != null && pc != null) trails.trail(tc.getPosition(), pc.getVelocity(), 0.8f, 0.2f, 0.8f);
             }
         };
         bullet.addComponent(new TransformComponent(new Vector2(from)));
@@ -401,6 +471,7 @@ public class GameScene extends Scene {
         PhysicsComponent pc = bullet.addComponent(new PhysicsComponent(0.1f));
         pc.setVelocity(target.subtract(from).normalize().multiply(250));
         pc.setFriction(1.0f);
+        pc.setContinuous(true);
         addGameObject(bullet);
     }
 
@@ -446,7 +517,7 @@ public class GameScene extends Scene {
             addScore(10);
             e.destroy();
             TransformComponent etc = e.getComponent(TransformComponent.class);
-            if (etc != null) particleSystem.emitExplosion(etc.getPosition(), 25, 1.0f, 0.9f, 0.3f);
+            if (etc != null) explosions.burst(etc.getPosition(), 25, 1.0f, 0.9f, 0.3f);
         }
     }
 
@@ -474,30 +545,29 @@ public class GameScene extends Scene {
         };
         activeBlackHole.addComponent(new TransformComponent(new Vector2(pos)));
         activeBlackHole.addComponent(new RenderComponent(RenderComponent.RenderType.CIRCLE, new Vector2(160, 160), new RenderComponent.Color(0,0,0,0)));
+        // 引力由 PhysicsSystem 批量施加，进入 40px 的敌人会被记录为捕获
+        ForceFieldComponent field = activeBlackHole.addComponent(
+            new ForceFieldComponent(ForceFieldComponent.FieldType.ATTRACTOR, 200f, 300f));
+        field.setCaptureRadius(40f);
+        field.setFilter(GameScene::isEnemy);
         addGameObject(activeBlackHole);
     }
 
+    private static boolean isEnemy(GameObject obj) {
+        String name = obj.getName();
+        return name.startsWith("Enemy") && !name.startsWith("EnemyBullet");
+    }
+
     private void updateBlackHole(float deltaTime) {
         if (activeBlackHole == null) return;
-        TransformComponent btc = activeBlackHole.getComponent(TransformComponent.class);
-        Vector2 bPos = btc.getPosition();
-        for (GameObject obj : getGameObjects()) {
-            if (obj.getName().startsWith("Enemy") && !obj.getName().startsWith("EnemyBullet")) {
-                TransformComponent etc = obj.getComponent(TransformComponent.class);
-                PhysicsComponent epc = obj.getComponent(PhysicsComponent.class);
-                if (etc != null && epc != null) {
-                    Vector2 toBH = bPos.subtract(etc.getPosition());
-                    float dist = toBH.magnitude();
-                    if (dist <= 200f) {
-                        epc.addVelocity(toBH.normalize().multiply(300f * (1 - dist/200f) * deltaTime));
-                        if (dist < 40) {
-                            addScore(10);
-                            obj.destroy();
-                            particleSystem.emitExplosion(etc.getPosition(), 15, 0.5f, 0.0f, 0.8f);
-                        }
-                    }
-                }
-            }
+        ForceFieldComponent field = activeBlackHole.getComponent(ForceFieldComponent.class);
+        if (field == null) return;
+        for (GameObject obj : field.getCaptured()) {
+            if (!obj.isActive()) continue;
+            TransformComponent etc = obj.getComponent(TransformComponent.class);
+            addScore(10);
+            obj.destroy();
+            if (etc != null) explosions.burst(etc.getPosition(), 15, 0.5f, 0.0f, 0.8f);
         }
     }
 
@@ -534,49 +604,4 @@ public class GameScene extends Scene {
         if (gameOver) renderer.drawText(300, 300, "GAME OVER - PRESS R", 1f, 0f, 0f, 1f);
         if (paused) renderer.drawText(350, 300, "PAUSED", 1f, 1f, 0f, 1f);
     }
-
-    private class ParticleSystem {
-        class Particle { Vector2 pos, vel; float life, maxLife; float r,g,b; }
-        List<Particle> particles = new ArrayList<>();
-        
-        public void update(float dt) {
-            Iterator<Particle> it = particles.iterator();
-            while(it.hasNext()) {
-                Particle p = it.next();
-                p.life -= dt;
-                if (p.life <= 0) it.remove();
-                else {
-                    p.pos = p.pos.add(p.vel.multiply(dt));
-                }
-            }
-        }
-        public void render() {
-            for(Particle p : particles) {
-                float a = p.life / p.maxLife;
-                renderer.drawRect(p.pos.x, p.pos.y, 4, 4, p.r, p.g, p.b, a);
-            }
-        }
-        public void emitTrail(Vector2 pos, Vector2 vel, float r, float g, float b) {
-            Particle p = new Particle();
-            p.pos = new Vector2(pos);
-            p.vel = vel.multiply(-0.1f).add(new Vector2((random.nextFloat()-0.5f)*20, (random.nextFloat()-0.5f)*20));
-            p.life = p.maxLife = 0.3f;
-            p.r=r; p.g=g; p.b=b;
-            particles.add(p);
-        }
-        public void emitExplosion(Vector2 pos, int count, float r, float g, float b) {
-            for(int i=0; i<count; i++) {
-                Particle p = new Particle();
-                p.pos = new Vector2(pos);
-                float angle = random.nextFloat() * 6.28f;
-                float speed = random.nextFloat() * 100 + 50;
-                p.vel = new Vector2((float)Math.cos(angle)*speed, (float)Math.sin(angle)*speed);
-                p.life = p.maxLife = 0.5f + random.nextFloat()*0.5f;
-                p.r=r; p.g=g; p.b=b;
-                particles.add(p);
-            }
-        }
-    }
 }
-
-
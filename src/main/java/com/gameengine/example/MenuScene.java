@@ -5,6 +5,7 @@ import com.gameengine.graphics.IRenderer;
 import com.gameengine.input.InputManager;
 import com.gameengine.math.Vector2;
 import com.gameengine.scene.Scene;
+import com.gameengine.recording.RecordingCodecs;
 import com.gameengine.recording.RecordingConfig;
 import com.gameengine.recording.RecordingService;
 
@@ -118,7 +119,7 @@ public class MenuScene extends Scene {
     private String findLatestRecording() {
         File dir = new File("recordings");
         if (!dir.exists() || !dir.isDirectory()) return null;
-        File[] files = dir.listFiles((d, name) -> name.endsWith(".json") || name.endsWith(".jsonl"));
+        File[] files = dir.listFiles((d, name) -> RecordingCodecs.isRecordingFile(name));
         if (files == null || files.length == 0) return null;
         Arrays.sort(files, (a, b) -> Long.compare(b.lastModified(), a.lastModified()));
         return files[0].getAbsolutePath();
@@ -135,8 +136,9 @@ public class MenuScene extends Scene {
         engine.setScene(gameScene);
         try {
             new File("recordings").mkdirs();
-            String path = "recordings/session_" + System.currentTimeMillis() + ".jsonl";
-            RecordingConfig cfg = new RecordingConfig(path);
+            RecordingConfig cfg = new RecordingConfig(null);
+            String ext = RecordingCodecs.forName(cfg.codec).getFileExtension();
+            cfg.outputPath = "recordings/session_" + System.currentTimeMillis() + ext;
             RecordingService svc = new RecordingService(cfg);
             engine.enableRecording(svc);
         } catch (Exception e) {
@@ -0,0 +1,46 @@
+package com.gameengine.example;
+
+import com.gameengine.core.GameEngine;
+import com.gameengine.graphics.RenderBackend;
+import com.gameengine.graphics.SoftwareRenderer;
+
+import java.io.File;
+
+// 无窗口地把录像逐帧渲染为 PNG：ReplayExporter <录像文件> [输出目录] [fps]
+public class ReplayExporter {
+    public static void main(String[] args) throws Exception {
+        if (args == null || args.length < 1) {
+            System.err.println("用法: ReplayExporter <recording> [outDir] [fps]");
+            return;
+        }
+        String path = args[0];
+        File outDir = new File(args.length > 1 ? args[1] : "frames");
+        float fps = args.length > 2 ? Float.parseFloat(args[2]) : 60f;
+        if (!outDir.exists() && !outDir.mkdirs()) {
+            System.err.println("无法创建输出目录: " + outDir);
+            return;
+        }
+
+        GameEngine engine = new GameEngine(1024, 768, "ReplayExport", RenderBackend.SOFTWARE);
+        SoftwareRenderer renderer = (SoftwareRenderer) engine.getBackend();
+        ReplayScene replay = new ReplayScene(engine, path);
+        engine.setScene(replay);
+        replay.initialize();
+
+        float dt = 1f / fps;
+        int frames = (int) Math.ceil(replay.getDuration() * fps) + 1;
+        long rasterNanos = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            replay.update(dt);
+            long start = System.nanoTime();
+            engine.renderFrame();
+            rasterNanos += System.nanoTime() - start;
+            renderer.writePng(new File(outDir, String.format("frame_%05d.png", frame)));
+        }
+
+        double seconds = rasterNanos / 1e9;
+        System.out.println("导出 " + frames + " 帧到 " + outDir.getPath()
+            + String.format("，渲染 %.1f FPS（不含 PNG 编码）", seconds > 0 ? frames / seconds : 0));
+        engine.cleanup();
+    }
+}
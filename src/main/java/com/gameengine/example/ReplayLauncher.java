@@ -2,6 +2,7 @@ package com.gameengine.example;
 
 import com.gameengine.core.GameEngine;
 import com.gameengine.graphics.RenderBackend;
+import com.gameengine.recording.RecordingCodecs;
 
 import java.io.File;
 import java.util.Arrays;
@@ -14,7 +15,7 @@ public class ReplayLauncher {
         } else {
             File dir = new File("recordings");
             if (dir.exists() && dir.isDirectory()) {
-                File[] files = dir.listFiles((d, name) -> name.endsWith(".json") || name.endsWith(".jsonl"));
+                File[] files = dir.listFiles((d, name) -> RecordingCodecs.isRecordingFile(name));
                 if (files != null && files.length > 0) {
                     Arrays.sort(files, (a,b) -> Long.compare(b.lastModified(), a.lastModified()));
                     path = files[0].getAbsolutePath();
@@ -3,9 +3,15 @@ package com.gameengine.example;
 import com.gameengine.components.TransformComponent;
 import com.gameengine.core.GameEngine;
 import com.gameengine.core.GameObject;
+import com.gameengine.core.ParticleService;
 import com.gameengine.graphics.IRenderer;
 import com.gameengine.input.InputManager;
 import com.gameengine.math.Vector2;
+import com.gameengine.recording.EntityRecord;
+import com.gameengine.recording.FileRecordingStorage;
+import com.gameengine.recording.FrameReconstructor;
+import com.gameengine.recording.RecordingCodecs;
+import com.gameengine.recording.RecordingStorage;
 import com.gameengine.scene.Scene;
 import com.gameengine.example.EntityFactory;
 
@@ -43,7 +49,9 @@ public class ReplayScene extends Scene {
     private int recordedHeight = 0;
     
     // Visuals
-    private ParticleSystem particleSystem;
+    private ParticleService particles;
+    private ParticleService.Emitter trails;
+    private ParticleService.Emitter explosions;
     private int lastKeyframeIndex = -1;
     private Random random = new Random();
 
@@ -59,7 +67,9 @@ public class ReplayScene extends Scene {
         super.initialize();
         this.renderer = engine.getRenderer();
         this.input = engine.getInputManager();
-        this.particleSystem = new ParticleSystem();
+        this.particles = engine.getParticleService();
+        this.trails = particles.emitter(ParticleService.TRAIL);
+        this.explosions = particles.emitter(ParticleService.EXPLOSION);
         // 重置状态，防止从列表进入后残留
         this.time = 0f;
         this.keyframes.clear();
@@ -123,7 +133,12 @@ public class ReplayScene extends Scene {
         double u = Math.min(1.0, Math.max(0.0, (time - a.t) / span));
 
         updateInterpolatedPositions(a, b, prev, (float)u, time);
-        particleSystem.update(deltaTime);
+        particles.update(deltaTime);
+    }
+
+    // 录像时长（最后一个关键帧的时间），未加载时为 0
+    public double getDuration() {
+        return keyframes.isEmpty() ? 0 : keyframes.get(keyframes.size() - 1).t;
     }
 
     @Override
@@ -146,7 +161,7 @@ public class ReplayScene extends Scene {
 
         // 基于 Transform 手动绘制（回放对象没有附带 RenderComponent）
         super.render();
-        particleSystem.render();
+        particles.render();
         
         String hint = "REPLAY: ESC to return";
         float w = hint.length() * 12.0f;
@@ -167,13 +182,13 @@ public class ReplayScene extends Scene {
                 // Entity existed in old frame but not in new frame -> Died
                 // 根据ID前缀判断实体类型，生成对应的死亡特效
                 if (ei.id.startsWith("Enemy") && !ei.id.startsWith("EnemyBullet")) {
-                    particleSystem.emitExplosion(ei.pos, 20, 1.0f, 0.3f, 0.3f);
+                    explosions.burst(ei.pos, 20, 1.0f, 0.3f, 0.3f);
                 } else if (ei.id.startsWith("Bullet")) {
-                    particleSystem.emitExplosion(ei.pos, 5, 1.0f, 1.0f, 0.0f);
+                    explosions.burst(ei.pos, 5, 1.0f, 1.0f, 0.0f);
                 } else if (ei.id.startsWith("EnemyBullet")) {
-                    particleSystem.emitExplosion(ei.pos, 5, 0.8f, 0.2f, 0.8f);
+                    explosions.burst(ei.pos, 5, 0.8f, 0.2f, 0.8f);
                 } else if (ei.id.startsWith("PowerUp")) {
-                    particleSystem.emitExplosion(ei.pos, 15, 0.3f, 1.0f, 1.0f);
+                    explosions.burst(ei.pos, 15, 0.3f, 1.0f, 1.0f);
                 }
             }
         }
@@ -181,55 +196,40 @@ public class ReplayScene extends Scene {
 
     private void loadRecording(String path) {
         keyframes.clear();
-        com.gameengine.recording.RecordingStorage storage = new com.gameengine.recording.FileRecordingStorage();
+        FileRecordingStorage storage = new FileRecordingStorage();
+        storage.setWorkerPool(engine.getWorkerPool());
         try {
-            for (String line : storage.readLines(path)) {
-                if (line.contains("\"type\":\"header\"")) {
-                    try {
-                        recordedWidth = (int)com.gameengine.recording.RecordingJson.parseDouble(com.gameengine.recording.RecordingJson.field(line, "width"));
-                        recordedHeight = (int)com.gameengine.recording.RecordingJson.parseDouble(com.gameengine.recording.RecordingJson.field(line, "height"));
-                    } catch (Exception ignored) {}
-                } else if (line.contains("\"type\":\"keyframe\"")) {
+            // 增量帧在读取时展开为完整帧，插值与事件检测逻辑保持不变
+            RecordingCodecs.read(storage.openReader(path), new FrameReconstructor() {
+                @Override
+                public void onHeader(int width, int height) {
+                    recordedWidth = width;
+                    recordedHeight = height;
+                }
+
+                @Override
+                protected void onFrame(double t, List<EntityRecord> entities) {
                     Keyframe kf = new Keyframe();
-                    kf.t = com.gameengine.recording.RecordingJson.parseDouble(com.gameengine.recording.RecordingJson.field(line, "t"));
-                    // 解析 entities 列表中的若干 {"id":"name","x":num,"y":num}
-                    int idx = line.indexOf("\"entities\":[");
-                    if (idx >= 0) {
-                        int bracket = line.indexOf('[', idx);
-                        String arr = bracket >= 0 ? com.gameengine.recording.RecordingJson.extractArray(line, bracket) : "";
-                        String[] parts = com.gameengine.recording.RecordingJson.splitTopLevel(arr);
-                        for (String p : parts) {
-                            Keyframe.EntityInfo ei = new Keyframe.EntityInfo();
-                            ei.id = com.gameengine.recording.RecordingJson.stripQuotes(com.gameengine.recording.RecordingJson.field(p, "id"));
-                            double x = com.gameengine.recording.RecordingJson.parseDouble(com.gameengine.recording.RecordingJson.field(p, "x"));
-                            double y = com.gameengine.recording.RecordingJson.parseDouble(com.gameengine.recording.RecordingJson.field(p, "y"));
-                            ei.pos = new Vector2((float)x, (float)y);
-                            String rt = com.gameengine.recording.RecordingJson.stripQuotes(com.gameengine.recording.RecordingJson.field(p, "rt"));
-                            ei.rt = rt;
-                            ei.w = (float)com.gameengine.recording.RecordingJson.parseDouble(com.gameengine.recording.RecordingJson.field(p, "w"));
-                            ei.h = (float)com.gameengine.recording.RecordingJson.parseDouble(com.gameengine.recording.RecordingJson.field(p, "h"));
-                            String colorArr = com.gameengine.recording.RecordingJson.field(p, "color");
-                            if (colorArr != null && colorArr.startsWith("[")) {
-                                String c = colorArr.substring(1, Math.max(1, colorArr.indexOf(']', 1)));
-                                String[] cs = c.split(",");
-                                if (cs.length >= 3) {
-                                    try {
-                                        ei.r = Float.parseFloat(cs[0].trim());
-                                        ei.g = Float.parseFloat(cs[1].trim());
-                                        ei.b = Float.parseFloat(cs[2].trim());
-                                        if (cs.length >= 4) ei.a = Float.parseFloat(cs[3].trim());
-                                    } catch (Exception ignored) {}
-                                }
-                            }
-                            kf.entities.add(ei);
-                            kf.entityMap.put(ei.id, ei);
-                        }
+                    kf.t = t;
+                    for (EntityRecord e : entities) {
+                        Keyframe.EntityInfo ei = new Keyframe.EntityInfo();
+                        ei.id = e.id;
+                        ei.pos = new Vector2(e.x, e.y);
+                        ei.rt = EntityRecord.shapeName(e.shape);
+                        ei.w = e.w;
+                        ei.h = e.h;
+                        ei.r = e.r;
+                        ei.g = e.g;
+                        ei.b = e.b;
+                        ei.a = e.a;
+                        kf.entities.add(ei);
+                        kf.entityMap.put(ei.id, ei);
                     }
                     keyframes.add(kf);
                 }
-            }
+            });
         } catch (Exception e) {
-            
+            System.err.println("读取录像失败: " + e.getMessage());
         }
         keyframes.sort(Comparator.comparingDouble(k -> k.t));
     }
@@ -302,9 +302,9 @@ public class ReplayScene extends Scene {
             // Emit trails for active bullets
             // 为移动中的子弹生成拖尾粒子
             if (id.startsWith("Bullet")) {
-                particleSystem.emitTrail(pos, new Vector2(0, -1), 1.0f, 1.0f, 0.0f);
+                trails.trail(pos, new Vector2(0, -1), 1.0f, 1.0f, 0.0f);
             } else if (id.startsWith("EnemyBullet")) {
-                particleSystem.emitTrail(pos, new Vector2(0, 1), 0.8f, 0.2f, 0.8f);
+                trails.trail(pos, new Vector2(0, 1), 0.8f, 0.2f, 0.8f);
             }
         }
         
@@ -317,11 +317,38 @@ public class ReplayScene extends Scene {
         }
     }
 
+    /**
+     * Replay object whose render() draws a custom visual within a fixed box around
+     * its position. The box lets Scene cull it like objects with a RenderComponent.
+     */
+    private abstract static class ReplayVisual extends GameObject {
+        private final float left, top, right, bottom;
+        
+        ReplayVisual(String name, float left, float top, float right, float bottom) {
+            super(name);
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+        }
+        
+        @Override
+        public boolean getRenderBounds(float[] out) {
+            TransformComponent tc = getComponent(TransformComponent.class);
+            if (tc == null) return false;
+            out[0] = tc.getX() - left;
+            out[1] = tc.getY() - top;
+            out[2] = tc.getX() + right;
+            out[3] = tc.getY() + bottom;
+            return true;
+        }
+    }
+    
     private GameObject buildObjectFromEntity(Keyframe.EntityInfo ei, int index) {
         GameObject obj;
         if ("Player".equalsIgnoreCase(ei.id)) {
             // Reconstruct Player visual
-            obj = new GameObject("Player") {
+            obj = new ReplayVisual("Player", 18, 37, 18, 26) {
                 @Override
                 public void render() {
                     TransformComponent tc = getComponent(TransformComponent.class);
@@ -338,9 +365,10 @@ public class ReplayScene extends Scene {
                     renderer.drawRect(pos.x + 2, pos.y + 12, 8, 14, 0.2f, 0.8f, 0.8f, 1.0f);
                 }
             };
+            obj.setZ(GameScene.PLAYER_Z);
         } else if (ei.id.startsWith("Enemy") && !ei.id.startsWith("EnemyBullet")) {
             // Reconstruct Enemy visual
-            obj = new GameObject(ei.id) {
+            obj = new ReplayVisual(ei.id, 5, 8, 27, 27) {
                 @Override
                 public void render() {
                     TransformComponent tc = getComponent(TransformComponent.class);
@@ -355,7 +383,7 @@ public class ReplayScene extends Scene {
                 }
             };
         } else if (ei.id.startsWith("PowerUp")) {
-            obj = new GameObject(ei.id) {
+            obj = new ReplayVisual(ei.id, 6, 6, 30, 30) {
                 @Override
                 public void render() {
                     TransformComponent tc = getComponent(TransformComponent.class);
@@ -368,7 +396,7 @@ public class ReplayScene extends Scene {
                 }
             };
         } else if (ei.id.startsWith("BlackHole")) {
-            obj = new GameObject(ei.id) {
+            obj = new ReplayVisual(ei.id, 80, 80, 80, 80) {
                 @Override
                 public void render() {
                     TransformComponent tc = getComponent(TransformComponent.class);
@@ -381,7 +409,7 @@ public class ReplayScene extends Scene {
                 }
             };
         } else if (ei.id.startsWith("Bullet")) {
-            obj = new GameObject(ei.id) {
+            obj = new ReplayVisual(ei.id, 8, 8, 8, 8) {
                 @Override
                 public void render() {
                     TransformComponent tc = getComponent(TransformComponent.class);
@@ -391,7 +419,7 @@ public class ReplayScene extends Scene {
                 }
             };
         } else if (ei.id.startsWith("EnemyBullet")) {
-            obj = new GameObject(ei.id) {
+            obj = new ReplayVisual(ei.id, 6, 6, 6, 6) {
                 @Override
                 public void render() {
                     TransformComponent tc = getComponent(TransformComponent.class);
@@ -401,7 +429,7 @@ public class ReplayScene extends Scene {
                 }
             };
         } else if (ei.id.startsWith("Star")) {
-            obj = new GameObject(ei.id) {
+            obj = new ReplayVisual(ei.id, 2, 2, 2, 2) {
                 @Override
                 public void render() {
                     TransformComponent tc = getComponent(TransformComponent.class);
@@ -411,7 +439,7 @@ public class ReplayScene extends Scene {
                 }
             };
         } else if (ei.id.startsWith("SlashEffect")) {
-            obj = new GameObject(ei.id) {
+            obj = new ReplayVisual(ei.id, 180, 180, 180, 180) {
                 float startTime = -1;
                 @Override
                 public void render() {
@@ -465,7 +493,7 @@ public class ReplayScene extends Scene {
 
     private void ensureFilesListed() {
         if (recordingFiles != null) return;
-        com.gameengine.recording.RecordingStorage storage = new com.gameengine.recording.FileRecordingStorage();
+        RecordingStorage storage = new FileRecordingStorage();
         recordingFiles = storage.listRecordings();
     }
 
@@ -521,49 +549,4 @@ public class ReplayScene extends Scene {
         float hw = hint.length() * 12f;
         renderer.drawText(w/2f - hw/2f, h - 60, hint, 0.7f,0.7f,0.7f,1f);
     }
-
-    private class ParticleSystem {
-        class Particle { Vector2 pos, vel; float life, maxLife; float r,g,b; }
-        List<Particle> particles = new ArrayList<>();
-        
-        public void update(float dt) {
-            Iterator<Particle> it = particles.iterator();
-            while(it.hasNext()) {
-                Particle p = it.next();
-                p.life -= dt;
-                if (p.life <= 0) it.remove();
-                else {
-                    p.pos = p.pos.add(p.vel.multiply(dt));
-                }
-            }
-        }
-        public void render() {
-            for(Particle p : particles) {
-                float a = p.life / p.maxLife;
-                renderer.drawRect(p.pos.x, p.pos.y, 4, 4, p.r, p.g, p.b, a);
-            }
-        }
-        public void emitTrail(Vector2 pos, Vector2 vel, float r, float g, float b) {
-            Particle p = new Particle();
-            p.pos = new Vector2(pos);
-            p.vel = vel.multiply(-0.1f).add(new Vector2((random.nextFloat()-0.5f)*20, (random.nextFloat()-0.5f)*20));
-            p.life = p.maxLife = 0.3f;
-            p.r=r; p.g=g; p.b=b;
-            particles.add(p);
-        }
-        public void emitExplosion(Vector2 pos, int count, float r, float g, float b) {
-            for(int i=0; i<count; i++) {
-                Particle p = new Particle();
-                p.pos = new Vector2(pos);
-                float angle = random.nextFloat() * 6.28f;
-                float speed = random.nextFloat() * 100 + 50;
-                p.vel = new Vector2((float)Math.cos(angle)*speed, (float)Math.sin(angle)*speed);
-                p.life = p.maxLife = 0.5f + random.nextFloat()*0.5f;
-                p.r=r; p.g=g; p.b=b;
-                particles.add(p);
-            }
-        }
-    }
 }
-
-
@@ -0,0 +1,89 @@
+package com.gameengine.graphics;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL30;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Offscreen color target for one static render layer: an RGBA texture attached to
+ * a framebuffer object. Content is rendered into it only when the layer is
+ * invalidated; every frame the texture is drawn as one screen-sized quad.
+ */
+class FramebufferLayer {
+    private final int width;
+    private final int height;
+    private int framebufferId;
+    private int textureId;
+    private boolean valid;
+    
+    FramebufferLayer(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+    
+    /**
+     * Allocates the texture and framebuffer. Returns false (and releases anything
+     * created) if the driver reports the framebuffer incomplete.
+     */
+    boolean create() {
+        textureId = GL11.glGenTextures();
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureId);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA8, width, height, 0,
+                          GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (ByteBuffer) null);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+        
+        framebufferId = GL30.glGenFramebuffers();
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, framebufferId);
+        GL30.glFramebufferTexture2D(GL30.GL_FRAMEBUFFER, GL30.GL_COLOR_ATTACHMENT0, GL11.GL_TEXTURE_2D, textureId, 0);
+        int status = GL30.glCheckFramebufferStatus(GL30.GL_FRAMEBUFFER);
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+        if (status != GL30.GL_FRAMEBUFFER_COMPLETE) {
+            System.err.println("静态图层帧缓冲不完整: 0x" + Integer.toHexString(status));
+            delete();
+            return false;
+        }
+        return true;
+    }
+    
+    // 绑定为渲染目标并清成全透明
+    void bind() {
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, framebufferId);
+        GL11.glClearColor(0f, 0f, 0f, 0f);
+        GL11.glClear(GL11.GL_COLOR_BUFFER_BIT);
+    }
+    
+    void unbind() {
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+        valid = true;
+    }
+    
+    boolean isValid() {
+        return valid;
+    }
+    
+    void invalidate() {
+        valid = false;
+    }
+    
+    int getTextureId() {
+        return textureId;
+    }
+    
+    void delete() {
+        if (framebufferId > 0) {
+            GL30.glDeleteFramebuffers(framebufferId);
+            framebufferId = 0;
+        }
+        if (textureId > 0) {
+            GL11.glDeleteTextures(textureId);
+            textureId = 0;
+        }
+        valid = false;
+    }
+}
@@ -0,0 +1,101 @@
+package com.gameengine.graphics;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL14;
+
+/**
+ * Shadow copy of the fixed-function state GPURenderer toggles (texturing, bound
+ * texture, blend function). Calls that would not change the current value are
+ * dropped before reaching the driver. Anything that changes this state directly
+ * must call reset() or invalidateTexture() so the shadow copy is not trusted.
+ */
+class GLStateTracker {
+    private static final int UNKNOWN = -1;
+    
+    private int texture2D;
+    private int boundTexture;
+    private int blendSrcRGB;
+    private int blendDstRGB;
+    private int blendSrcAlpha;
+    private int blendDstAlpha;
+    private int changes;
+    private int skipped;
+    
+    GLStateTracker() {
+        reset();
+    }
+    
+    // 状态未知，下一次设置一定会调用 GL
+    void reset() {
+        texture2D = UNKNOWN;
+        boundTexture = UNKNOWN;
+        blendSrcRGB = UNKNOWN;
+        blendDstRGB = UNKNOWN;
+        blendSrcAlpha = UNKNOWN;
+        blendDstAlpha = UNKNOWN;
+    }
+    
+    void invalidateTexture() {
+        boundTexture = UNKNOWN;
+    }
+    
+    void setTexture2D(boolean enabled) {
+        int value = enabled ? 1 : 0;
+        if (texture2D == value) {
+            skipped++;
+            return;
+        }
+        if (enabled) {
+            GL11.glEnable(GL11.GL_TEXTURE_2D);
+        } else {
+            GL11.glDisable(GL11.GL_TEXTURE_2D);
+        }
+        texture2D = value;
+        changes++;
+    }
+    
+    void bindTexture(int id) {
+        if (boundTexture == id) {
+            skipped++;
+            return;
+        }
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, id);
+        boundTexture = id;
+        changes++;
+    }
+    
+    void blendFunc(int src, int dst) {
+        blendFuncSeparate(src, dst, src, dst);
+    }
+    
+    void blendFuncSeparate(int srcRGB, int dstRGB, int srcAlpha, int dstAlpha) {
+        if (blendSrcRGB == srcRGB && blendDstRGB == dstRGB && blendSrcAlpha == srcAlpha && blendDstAlpha == dstAlpha) {
+            skipped++;
+            return;
+        }
+        if (srcRGB == srcAlpha && dstRGB == dstAlpha) {
+            GL11.glBlendFunc(srcRGB, dstRGB);
+        } else {
+            GL14.glBlendFuncSeparate(srcRGB, dstRGB, srcAlpha, dstAlpha);
+        }
+        blendSrcRGB = srcRGB;
+        blendDstRGB = dstRGB;
+        blendSrcAlpha = srcAlpha;
+        blendDstAlpha = dstAlpha;
+        changes++;
+    }
+    
+    // 返回并清零自上次调用以来实际提交的状态切换次数
+    int takeChangeCount() {
+        int n = changes;
+        changes = 0;
+        return n;
+    }
+    
+    // 返回并清零被过滤掉的冗余状态设置次数
+    int takeSkippedCount() {
+        int n = skipped;
+        skipped = 0;
+        return n;
+    }
+}
@@ -1,21 +1,22 @@
 package com.gameengine.graphics;
 
 import com.gameengine.input.InputManager;
+import com.gameengine.math.FastMath;
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.glfw.GLFWErrorCallback;
 import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GLCapabilities;
 import org.lwjgl.system.MemoryStack;
 import org.lwjgl.system.MemoryUtil;
 
 import java.awt.*;
-import java.awt.image.BufferedImage;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
-import org.lwjgl.BufferUtils;
 import java.util.HashMap;
 import java.util.Map;
+import org.lwjgl.BufferUtils;
 
 public class GPURenderer implements IRenderer {
     private int width;
@@ -24,10 +25,28 @@ public class GPURenderer implements IRenderer {
     private InputManager inputManager;
     private boolean initialized;
     private long window;
-    private Map<Character, Integer> charTextures;
+    private GlyphAtlas glyphAtlas;
+    private TextLayoutCache textLayouts;
+    private final VertexBatch textBatch;
     private Font font;
     private int fontSize;
     private boolean texturesPreloaded;
+    // 形状统一写入客户端顶点数组，状态或图元类型变化时才提交一次 glDrawArrays
+    private final VertexBatch batch;
+    // 调试模式下才查询 glGetError（每次查询都会使 CPU 与 GPU 同步）
+    private boolean debug;
+    // 静态图层：每层一个 FBO，失效时才重绘，其余帧只画一个带纹理的四边形
+    private final Map<Integer, FramebufferLayer> staticLayers;
+    private final VertexBatch layerBatch;
+    // FBO 创建失败时在主线程改为 false，延迟渲染的录制线程会读取
+    private volatile boolean framebuffersSupported;
+    private FramebufferLayer activeLayer;
+    private boolean activeLayerRedraw;
+    // 纹理/混合状态的影子副本，过滤冗余的 GL 调用
+    private final GLStateTracker state;
+    private int lastStateChanges;
+    private int lastRedundantStates;
+    private static final float LINE_WIDTH = 2.5f;
     private static final String PRELOAD_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789!@#$%^&*()_+-=[]{}|;:,.<>?/~` ";
 
     public GPURenderer(int width, int height, String title) {
@@ -37,10 +56,18 @@ public class GPURenderer implements IRenderer {
         this.inputManager = InputManager.getInstance();
         this.initialized = false;
         this.window = 0;
-        this.charTextures = new HashMap<>();
         this.font = new Font(Font.MONOSPACED, Font.BOLD, 32);
         this.fontSize = 32;
         this.texturesPreloaded = false;
+        this.batch = new VertexBatch(16384);
+        this.textBatch = new VertexBatch(8192, true);
+        // 所有字形放在同一张 512x256 图集中（32px 格子，共 128 格）
+        this.glyphAtlas = new GlyphAtlas(font, fontSize, 512, 256);
+        this.textLayouts = new TextLayoutCache(glyphAtlas, fontSize * 0.6f, fontSize, 1.0f, 256);
+        this.debug = Boolean.getBoolean("gameengine.glDebug");
+        this.staticLayers = new HashMap<>();
+        this.layerBatch = new VertexBatch(6, true);
+        this.state = new GLStateTracker();
 
         initialize();
     }
@@ -85,7 +112,9 @@ public class GPURenderer implements IRenderer {
             setupInput();
             
             GLFW.glfwMakeContextCurrent(window);
-            GL.createCapabilities();
+            GLCapabilities caps = GL.createCapabilities();
+            // 上下文为 2.1，FBO 需要 3.0 或 ARB_framebuffer_object，否则静态图层退化为直接绘制
+            framebuffersSupported = caps.OpenGL30 || caps.GL_ARB_framebuffer_object;
             GLFW.glfwSwapInterval(1);
             
             GLFW.glfwShowWindow(window);
@@ -163,162 +192,241 @@ public class GPURenderer implements IRenderer {
         GL11.glClear(GL11.GL_COLOR_BUFFER_BIT);
         
         GL11.glEnable(GL11.GL_BLEND);
-        GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
         GL11.glDisable(GL11.GL_DEPTH_TEST);
-        GL11.glDisable(GL11.GL_TEXTURE_2D);
         GL11.glDisable(GL11.GL_LIGHTING);
         GL11.glDisable(GL11.GL_CULL_FACE);
         GL11.glDisable(GL11.GL_COLOR_MATERIAL);
+        GL11.glTexEnvi(GL11.GL_TEXTURE_ENV, GL11.GL_TEXTURE_ENV_MODE, GL11.GL_MODULATE);
         
+        // 每帧开始时重新建立已知状态，之后的切换都经过状态跟踪器
+        state.reset();
+        state.blendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+        state.setTexture2D(false);
     }
     
     @Override
     public void endFrame() {
         if (!initialized) return;
+        endStaticLayer();
+        flushShapes();
+        flushText();
+        lastStateChanges = state.takeChangeCount();
+        lastRedundantStates = state.takeSkippedCount();
+        checkError("endFrame");
         GLFW.glfwSwapBuffers(window);
     }
     
+    public void setDebug(boolean debug) {
+        this.debug = debug;
+    }
+    
+    // 上一帧实际提交的纹理/混合状态切换次数
+    public int getStateChanges() {
+        return lastStateChanges;
+    }
+    
+    // 上一帧被状态跟踪器过滤掉的冗余设置次数
+    public int getRedundantStateChanges() {
+        return lastRedundantStates;
+    }
+    
     @Override
-    public void drawRect(float x, float y, float w, float h, float r, float g, float b, float a) {
-        if (!initialized) return;
+    public boolean beginStaticLayer(int layer) {
+        if (!initialized || !framebuffersSupported || activeLayer != null) return true;
         
-        GL11.glColor4f(r, g, b, a);
-        GL11.glBegin(GL11.GL_QUADS);
-        GL11.glVertex2f(x, y);
-        GL11.glVertex2f(x + w, y);
-        GL11.glVertex2f(x + w, y + h);
-        GL11.glVertex2f(x, y + h);
-        GL11.glEnd();
+        FramebufferLayer target = staticLayers.get(layer);
+        if (target == null) {
+            target = new FramebufferLayer(width, height);
+            boolean created = target.create();
+            state.invalidateTexture();
+            if (!created) {
+                framebuffersSupported = false;
+                return true;
+            }
+            staticLayers.put(layer, target);
+        }
+        activeLayer = target;
+        activeLayerRedraw = !target.isValid();
+        if (!activeLayerRedraw) return false;
+        
+        // 投影与屏幕相同；颜色按常规混合，alpha 累加为预乘形式，合成时用 (ONE, ONE_MINUS_SRC_ALPHA)
+        flushShapes();
+        flushText();
+        target.bind();
+        state.blendFuncSeparate(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA,
+                                GL11.GL_ONE, GL11.GL_ONE_MINUS_SRC_ALPHA);
+        return true;
+    }
+    
+    @Override
+    public boolean cachesStaticLayers() {
+        return framebuffersSupported;
+    }
+    
+    @Override
+    public void endStaticLayer() {
+        FramebufferLayer target = activeLayer;
+        if (target == null) return;
+        activeLayer = null;
+        
+        flushShapes();
+        flushText();
+        if (activeLayerRedraw) {
+            target.unbind();
+            checkError("staticLayer");
+        }
+        
+        // FBO 的第 0 行在底部，而正交投影的 y 轴向下，所以纹理 v 方向翻转
+        state.blendFunc(GL11.GL_ONE, GL11.GL_ONE_MINUS_SRC_ALPHA);
+        state.setTexture2D(true);
+        state.bindTexture(target.getTextureId());
+        layerBatch.begin(GL11.GL_TRIANGLES, 6);
+        layerBatch.vertex(0, 0, 0, 1, 1, 1, 1, 1);
+        layerBatch.vertex(width, 0, 1, 1, 1, 1, 1, 1);
+        layerBatch.vertex(width, height, 1, 0, 1, 1, 1, 1);
+        layerBatch.vertex(0, 0, 0, 1, 1, 1, 1, 1);
+        layerBatch.vertex(width, height, 1, 0, 1, 1, 1, 1);
+        layerBatch.vertex(0, height, 0, 0, 1, 1, 1, 1);
+        layerBatch.flush();
+        state.blendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+    }
+    
+    @Override
+    public void invalidateStaticLayer(int layer) {
+        FramebufferLayer target = staticLayers.get(layer);
+        if (target != null) target.invalidate();
+    }
+    
+    @Override
+    public void invalidateStaticLayers() {
+        for (FramebufferLayer target : staticLayers.values()) {
+            target.invalidate();
+        }
+    }
+    
+    private void checkError(String where) {
+        if (!debug) return;
         int err = GL11.glGetError();
-        if (err != GL11.GL_NO_ERROR) {
-            System.err.println("[GPURenderer] drawRect GL error: 0x" + Integer.toHexString(err));
+        while (err != GL11.GL_NO_ERROR) {
+            System.err.println("[GPURenderer] " + where + " GL error: 0x" + Integer.toHexString(err));
+            err = GL11.glGetError();
         }
     }
     
     @Override
-    public void drawCircle(float x, float y, float radius, int segments, float r, float g, float b, float a) {
+    public void drawRect(float x, float y, float w, float h, float r, float g, float b, float a) {
         if (!initialized) return;
         
-        GL11.glColor4f(r, g, b, a);
-        GL11.glBegin(GL11.GL_TRIANGLE_FAN);
-        GL11.glVertex2f(x, y);
+        flushText();
+        batch.begin(GL11.GL_TRIANGLES, 6);
+        batch.vertex(x, y, r, g, b, a);
+        batch.vertex(x + w, y, r, g, b, a);
+        batch.vertex(x + w, y + h, r, g, b, a);
+        batch.vertex(x, y, r, g, b, a);
+        batch.vertex(x + w, y + h, r, g, b, a);
+        batch.vertex(x, y + h, r, g, b, a);
+    }
+    
+    @Override
+    public void drawCircle(float x, float y, float radius, int segments, float r, float g, float b, float a) {
+        if (!initialized || segments < 3) return;
+        // 边数按屏幕半径自适应、不超过调用方给的分段数，顶点取自预计算的单位圆表
+        segments = Math.min(segments, FastMath.circleSegments(radius));
+        float[] unit = FastMath.unitCircle(segments);
         
-        for (int i = 0; i <= segments; i++) {
-            float angle = (float) (i * 2.0 * Math.PI / segments);
-            float px = x + (float) (radius * Math.cos(angle));
-            float py = y + (float) (radius * Math.sin(angle));
-            GL11.glVertex2f(px, py);
+        // 三角扇展开为独立三角形，才能与矩形合并到同一次提交
+        flushText();
+        batch.begin(GL11.GL_TRIANGLES, segments * 3);
+        float prevX = x + radius * unit[0];
+        float prevY = y + radius * unit[1];
+        for (int i = 1; i <= segments; i++) {
+            float px = x + radius * unit[i * 2];
+            float py = y + radius * unit[i * 2 + 1];
+            batch.vertex(x, y, r, g, b, a);
+            batch.vertex(prevX, prevY, r, g, b, a);
+            batch.vertex(px, py, r, g, b, a);
+            prevX = px;
+            prevY = py;
         }
-        GL11.glEnd();
     }
     
     @Override
     public void drawLine(float x1, float y1, float x2, float y2, float r, float g, float b, float a) {
         if (!initialized) return;
         
-        GL11.glLineWidth(2.5f);
-        GL11.glColor4f(r, g, b, a);
-        GL11.glBegin(GL11.GL_LINES);
-        GL11.glVertex2f(x1, y1);
-        GL11.glVertex2f(x2, y2);
-        GL11.glEnd();
+        // 线段展开成 2.5px 宽的四边形，与其它形状共用三角形批次，避免图元切换导致提交
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        float len = (float) Math.sqrt(dx * dx + dy * dy);
+        if (len < 0.001f) return;
+        float scale = LINE_WIDTH * 0.5f / len;
+        float nx = -dy * scale;
+        float ny = dx * scale;
+        
+        flushText();
+        batch.begin(GL11.GL_TRIANGLES, 6);
+        batch.vertex(x1 - nx, y1 - ny, r, g, b, a);
+        batch.vertex(x1 + nx, y1 + ny, r, g, b, a);
+        batch.vertex(x2 + nx, y2 + ny, r, g, b, a);
+        batch.vertex(x1 - nx, y1 - ny, r, g, b, a);
+        batch.vertex(x2 + nx, y2 + ny, r, g, b, a);
+        batch.vertex(x2 - nx, y2 - ny, r, g, b, a);
     }
     
     @Override
     public void drawText(float x, float y, String text, float r, float g, float b, float a) {
         if (!initialized || text == null || text.isEmpty()) return;
         
+        // 预加载或新字形上传会改动纹理绑定，之后不能再信任跟踪的绑定
+        int glyphs = glyphAtlas.getGlyphCount();
+        int generation = glyphAtlas.getGeneration();
         if (!texturesPreloaded) {
             preloadTextures();
         }
         
-        GL11.glEnable(GL11.GL_TEXTURE_2D);
-        GL11.glEnable(GL11.GL_BLEND);
-        GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
-        
-        float currentX = x;
-        float charHeight = fontSize;
-        float charWidth = fontSize * 0.6f;
-        float spacing = 1.0f;
+        // 排版可能使图集扩容或重置，已排队文字的纹理坐标会失效，先提交
+        if (!textLayouts.isCached(text)) {
+            flushText();
+        }
+        float[] run = textLayouts.get(text);
+        if (glyphAtlas.getGlyphCount() != glyphs || glyphAtlas.getGeneration() != generation) {
+            state.invalidateTexture();
+        }
+        int vertices = run.length / 4;
+        if (vertices == 0) return;
         
-        for (int i = 0; i < text.length(); i++) {
-            char c = text.charAt(i);
-            if (c == ' ') {
-                currentX += charWidth * 0.5f;
-                continue;
+        // 形状与文字使用不同的纹理状态，切换时先提交另一批，保证绘制顺序
+        flushShapes();
+        // 超过一批容量的长文本按整字形分多批提交
+        int chunk = textBatch.getMaxVertices() / 6 * 6;
+        for (int start = 0; start < vertices; start += chunk) {
+            int count = Math.min(chunk, vertices - start);
+            if (!textBatch.hasRoom(count)) {
+                flushText();
             }
-            
-            int textureId = getCharTexture(c);
-            if (textureId > 0) {
-                GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureId);
-                GL11.glTexEnvi(GL11.GL_TEXTURE_ENV, GL11.GL_TEXTURE_ENV_MODE, GL11.GL_MODULATE);
-                GL11.glColor4f(r, g, b, a);
-                GL11.glBegin(GL11.GL_QUADS);
-                GL11.glTexCoord2f(0.0f, 0.0f);
-                GL11.glVertex2f(currentX, y);
-                GL11.glTexCoord2f(1.0f, 0.0f);
-                GL11.glVertex2f(currentX + charWidth, y);
-                GL11.glTexCoord2f(1.0f, 1.0f);
-                GL11.glVertex2f(currentX + charWidth, y + charHeight);
-                GL11.glTexCoord2f(0.0f, 1.0f);
-                GL11.glVertex2f(currentX, y + charHeight);
-                GL11.glEnd();
+            textBatch.begin(GL11.GL_TRIANGLES, count);
+            for (int i = start * 4, end = (start + count) * 4; i < end; i += 4) {
+                textBatch.vertex(x + run[i], y + run[i + 1], run[i + 2], run[i + 3], r, g, b, a);
             }
-            
-            currentX += charWidth + spacing;
         }
-        
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
-        GL11.glDisable(GL11.GL_TEXTURE_2D);
     }
     
-    private void preloadTextures() {
-        if (!initialized || texturesPreloaded) return;
-        
-        GLFW.glfwMakeContextCurrent(window);
-        
-        int loaded = 0;
-        int failed = 0;
-        
-        for (int i = 0; i < PRELOAD_CHARS.length(); i++) {
-            char c = PRELOAD_CHARS.charAt(i);
-            if (c == ' ') continue;
-            
-            if (!charTextures.containsKey(c)) {
-                int error = GL11.glGetError();
-                while (error != GL11.GL_NO_ERROR) {
-                    error = GL11.glGetError();
-                }
-                
-                int textureId = createCharTexture(c);
-                if (textureId > 0) {
-                    charTextures.put(c, textureId);
-                    loaded++;
-                } else {
-                    failed++;
-                }
-            }
-        }
-        
-        texturesPreloaded = true;
-        System.out.println("预加载字符纹理完成: " + loaded + " 成功, " + failed + " 失败");
+    private void flushShapes() {
+        if (batch.isEmpty()) return;
+        state.setTexture2D(false);
+        batch.flush();
     }
     
-    private int getCharTexture(char c) {
-        if (charTextures.containsKey(c)) {
-            return charTextures.get(c);
-        }
-        
-        if (!texturesPreloaded) {
-            preloadTextures();
-            if (charTextures.containsKey(c)) {
-                return charTextures.get(c);
-            }
-        }
-        
-        if (!initialized) {
-            return 0;
-        }
+    // 纹理保持启用和绑定，下一批文字无需再次设置
+    private void flushText() {
+        if (textBatch.isEmpty()) return;
+        state.setTexture2D(true);
+        state.bindTexture(glyphAtlas.getTextureId());
+        textBatch.flush();
+    }
+    
+    private void preloadTextures() {
+        if (!initialized || texturesPreloaded) return;
         
         GLFW.glfwMakeContextCurrent(window);
         
@@ -327,118 +435,11 @@ public class GPURenderer implements IRenderer {
             error = GL11.glGetError();
         }
         
-        int textureId = createCharTexture(c);
-        if (textureId > 0) {
-            charTextures.put(c, textureId);
-        }
-        return textureId;
+        boolean ok = glyphAtlas.create(PRELOAD_CHARS);
+        texturesPreloaded = true;
+        System.out.println("字形图集" + (ok ? "创建完成: " + glyphAtlas.getGlyphCount() + " 个字符" : "创建失败"));
     }
     
-    private int createCharTexture(char c) {
-        try {
-            BufferedImage img = new BufferedImage(fontSize, fontSize, BufferedImage.TYPE_INT_ARGB);
-            Graphics2D g2d = img.createGraphics();
-            
-            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-            g2d.setComposite(AlphaComposite.Clear);
-            g2d.fillRect(0, 0, fontSize, fontSize);
-            
-            g2d.setComposite(AlphaComposite.SrcOver);
-            g2d.setColor(new Color(255, 255, 255, 255));
-            g2d.setFont(font);
-            FontMetrics fm = g2d.getFontMetrics();
-            int x = (fontSize - fm.charWidth(c)) / 2;
-            int y = (fontSize - fm.getHeight()) / 2 + fm.getAscent();
-            g2d.drawString(String.valueOf(c), x, y);
-            g2d.dispose();
-            
-            int[] pixels = new int[fontSize * fontSize];
-            img.getRGB(0, 0, fontSize, fontSize, pixels, 0, fontSize);
-            
-            ByteBuffer buffer = ByteBuffer.allocateDirect(fontSize * fontSize * 4);
-            for (int i = 0; i < pixels.length; i++) {
-                int pixel = pixels[i];
-                buffer.put((byte) ((pixel >> 16) & 0xFF));
-                buffer.put((byte) ((pixel >> 8) & 0xFF));
-                buffer.put((byte) (pixel & 0xFF));
-                buffer.put((byte) ((pixel >> 24) & 0xFF));
-            }
-            buffer.flip();
-            
-            GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 1);
-            GL11.glEnable(GL11.GL_TEXTURE_2D);
-            GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
-            
-            int prevError = GL11.glGetError();
-            while (prevError != GL11.GL_NO_ERROR) {
-                System.err.println("Clearing OpenGL error before genTextures for '" + c + "': " + Integer.toHexString(prevError));
-                prevError = GL11.glGetError();
-            }
-            
-            int textureId;
-            try {
-                IntBuffer ids = BufferUtils.createIntBuffer(1);
-                GL11.glGenTextures(ids);
-                textureId = ids.get(0);
-            } catch (Throwable t) {
-                textureId = GL11.glGenTextures();
-            }
-            
-            if (textureId <= 0) {
-                int genError = GL11.glGetError();
-                System.err.println("glGenTextures returned 0 or negative for char '" + c + "'");
-                if (genError != GL11.GL_NO_ERROR) {
-                    System.err.println("OpenGL error code: 0x" + Integer.toHexString(genError));
-                } else {
-                    System.err.println("No OpenGL error reported, but textureId is invalid. Possible causes:");
-                    System.err.println("  - OpenGL context not properly initialized");
-                    System.err.println("  - Reached texture limit");
-                    System.err.println("  - Graphics driver issue");
-                }
-                return 0;
-            }
-            
-            int genError = GL11.glGetError();
-            if (genError != GL11.GL_NO_ERROR) {
-                System.err.println("OpenGL error after glGenTextures for '" + c + "': 0x" + Integer.toHexString(genError));
-                GL11.glDeleteTextures(textureId);
-                return 0;
-            }
-            
-            GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureId);
-            
-            int bindError = GL11.glGetError();
-            if (bindError != GL11.GL_NO_ERROR) {
-                System.err.println("OpenGL error binding texture for '" + c + "': " + Integer.toHexString(bindError));
-                GL11.glDeleteTextures(textureId);
-                return 0;
-            }
-            
-            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
-            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
-            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
-            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
-            GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, fontSize, fontSize, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, buffer);
-            
-            int texError = GL11.glGetError();
-            if (texError != GL11.GL_NO_ERROR) {
-                System.err.println("OpenGL error uploading texture data for '" + c + "': " + Integer.toHexString(texError));
-                GL11.glDeleteTextures(textureId);
-                return 0;
-            }
-            
-            GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
-            GL11.glDisable(GL11.GL_TEXTURE_2D);
-            
-            return textureId;
-        } catch (Exception e) {
-            System.err.println("Exception creating texture for char '" + c + "': " + e.getMessage());
-            e.printStackTrace();
-            return 0;
-        }
-    }
-
     private int createTestTexture() {
         try {
             ByteBuffer buf = BufferUtils.createByteBuffer(4 * 4);
@@ -529,12 +530,12 @@ public class GPURenderer implements IRenderer {
     
     @Override
     public void cleanup() {
-        for (Integer textureId : charTextures.values()) {
-            if (textureId > 0) {
-                GL11.glDeleteTextures(textureId);
-            }
+        textLayouts.clear();
+        glyphAtlas.delete();
+        for (FramebufferLayer target : staticLayers.values()) {
+            target.delete();
         }
-        charTextures.clear();
+        staticLayers.clear();
         
         if (window != MemoryUtil.NULL) {
             GLFW.glfwDestroyWindow(window);
@@ -0,0 +1,234 @@
+package com.gameengine.graphics;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * All glyphs of one font in a single texture, laid out as a grid of square cells.
+ * The preload set is rasterized into one image and uploaded at once; characters
+ * seen later are drawn into the next free cell with glTexSubImage2D. A full atlas
+ * doubles its height and is re-uploaded from a CPU copy; at the GL size limit it
+ * is emptied and refilled on demand. Both change the texture coordinates of
+ * existing glyphs, which getGeneration() reports.
+ */
+public class GlyphAtlas {
+    private final Font font;
+    private final int cellSize;
+    private final int columns;
+    private int rows;
+    private final int atlasWidth;
+    private int atlasHeight;
+    private final Map<Character, Integer> slots;
+    // 纹理内容的 CPU 副本，扩容时整体重新上传
+    private BufferedImage image;
+    private int maxTextureSize;
+    private int textureId;
+    private int nextSlot;
+    private int generation;
+    
+    public GlyphAtlas(Font font, int cellSize, int atlasWidth, int atlasHeight) {
+        this.font = font;
+        this.cellSize = cellSize;
+        this.atlasWidth = atlasWidth;
+        this.atlasHeight = atlasHeight;
+        this.columns = atlasWidth / cellSize;
+        this.rows = atlasHeight / cellSize;
+        this.slots = new HashMap<>();
+    }
+    
+    /**
+     * Creates the texture and uploads the given characters in one call. Must run
+     * on the thread that owns the GL context.
+     */
+    public boolean create(String preloadChars) {
+        image = new BufferedImage(atlasWidth, atlasHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = beginGlyphGraphics(image, font);
+        for (int i = 0; i < preloadChars.length(); i++) {
+            char c = preloadChars.charAt(i);
+            if (c == ' ' || slots.containsKey(c) || nextSlot >= columns * rows) continue;
+            int slot = nextSlot++;
+            drawGlyph(g2d, c, cellSize, (slot % columns) * cellSize, (slot / columns) * cellSize);
+            slots.put(c, slot);
+        }
+        g2d.dispose();
+        
+        IntBuffer ids = BufferUtils.createIntBuffer(1);
+        GL11.glGenTextures(ids);
+        textureId = ids.get(0);
+        if (textureId <= 0) {
+            textureId = GL11.glGenTextures();
+        }
+        if (textureId <= 0) {
+            System.err.println("字形图集纹理创建失败");
+            return false;
+        }
+        maxTextureSize = Math.max(atlasHeight, GL11.glGetInteger(GL11.GL_MAX_TEXTURE_SIZE));
+        
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureId);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+        upload();
+        return true;
+    }
+    
+    /**
+     * Returns the cell index of c, rasterizing it into a free cell if needed, or -1
+     * if there is no texture. May grow or reset the atlas first (see getGeneration()).
+     */
+    public int slotFor(char c) {
+        Integer slot = slots.get(c);
+        if (slot != null) return slot;
+        if (textureId <= 0) return -1;
+        if (nextSlot >= columns * rows && !grow()) {
+            reset();
+        }
+        
+        int s = nextSlot++;
+        int cellX = (s % columns) * cellSize;
+        int cellY = (s / columns) * cellSize;
+        BufferedImage img = rasterizeGlyph(font, cellSize, c);
+        image.setRGB(cellX, cellY, cellSize, cellSize, img.getRGB(0, 0, cellSize, cellSize, null, 0, cellSize), 0, cellSize);
+        
+        GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 1);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureId);
+        GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, cellX, cellY,
+                             cellSize, cellSize, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, toRGBA(img));
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+        slots.put(c, s);
+        return s;
+    }
+    
+    // 高度加倍并重新上传；已有格子位置不变，但 v 坐标随高度改变
+    private boolean grow() {
+        if (atlasHeight * 2 > maxTextureSize) return false;
+        BufferedImage larger = new BufferedImage(atlasWidth, atlasHeight * 2, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = larger.createGraphics();
+        g2d.setComposite(AlphaComposite.Src);
+        g2d.drawImage(image, 0, 0, null);
+        g2d.dispose();
+        image = larger;
+        atlasHeight *= 2;
+        rows = atlasHeight / cellSize;
+        generation++;
+        
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureId);
+        upload();
+        return true;
+    }
+    
+    // 已达纹理尺寸上限：清空全部字形，之后按需重新光栅化
+    private void reset() {
+        image = new BufferedImage(atlasWidth, atlasHeight, BufferedImage.TYPE_INT_ARGB);
+        slots.clear();
+        nextSlot = 0;
+        generation++;
+    }
+    
+    // 把 CPU 副本整体上传到当前绑定的纹理，完成后解除绑定
+    private void upload() {
+        GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 1);
+        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, atlasWidth, atlasHeight, 0,
+                          GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, toRGBA(image));
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+    }
+    
+    public float u0(int slot) {
+        return (slot % columns) * cellSize / (float) atlasWidth;
+    }
+    
+    public float v0(int slot) {
+        return (slot / columns) * cellSize / (float) atlasHeight;
+    }
+    
+    public float u1(int slot) {
+        return u0(slot) + cellSize / (float) atlasWidth;
+    }
+    
+    public float v1(int slot) {
+        return v0(slot) + cellSize / (float) atlasHeight;
+    }
+    
+    public int getTextureId() {
+        return textureId;
+    }
+    
+    public int getGlyphCount() {
+        return slots.size();
+    }
+    
+    // 扩容或重置时递增，此前算出的纹理坐标随之失效
+    public int getGeneration() {
+        return generation;
+    }
+    
+    public void delete() {
+        if (textureId > 0) {
+            GL11.glDeleteTextures(textureId);
+            textureId = 0;
+        }
+        slots.clear();
+        image = null;
+        nextSlot = 0;
+        generation++;
+    }
+    
+    // 单个字形的白色 ARGB 图像，软件渲染器也用它生成字形遮罩
+    static BufferedImage rasterizeGlyph(Font font, int cellSize, char c) {
+        BufferedImage img = new BufferedImage(cellSize, cellSize, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = beginGlyphGraphics(img, font);
+        drawGlyph(g2d, c, cellSize, 0, 0);
+        g2d.dispose();
+        return img;
+    }
+    
+    private static Graphics2D beginGlyphGraphics(BufferedImage img, Font font) {
+        Graphics2D g2d = img.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2d.setComposite(AlphaComposite.Clear);
+        g2d.fillRect(0, 0, img.getWidth(), img.getHeight());
+        g2d.setComposite(AlphaComposite.SrcOver);
+        g2d.setColor(new Color(255, 255, 255, 255));
+        g2d.setFont(font);
+        return g2d;
+    }
+    
+    // 字形在格子内居中，与旧的逐字符纹理保持相同的位置
+    private static void drawGlyph(Graphics2D g2d, char c, int cellSize, int cellX, int cellY) {
+        FontMetrics fm = g2d.getFontMetrics();
+        int x = (cellSize - fm.charWidth(c)) / 2;
+        int y = (cellSize - fm.getHeight()) / 2 + fm.getAscent();
+        g2d.drawString(String.valueOf(c), cellX + x, cellY + y);
+    }
+    
+    private static ByteBuffer toRGBA(BufferedImage img) {
+        int w = img.getWidth();
+        int h = img.getHeight();
+        int[] pixels = new int[w * h];
+        img.getRGB(0, 0, w, h, pixels, 0, w);
+        ByteBuffer buffer = BufferUtils.createByteBuffer(w * h * 4);
+        for (int pixel : pixels) {
+            buffer.put((byte) ((pixel >> 16) & 0xFF));
+            buffer.put((byte) ((pixel >> 8) & 0xFF));
+            buffer.put((byte) (pixel & 0xFF));
+            buffer.put((byte) ((pixel >> 24) & 0xFF));
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
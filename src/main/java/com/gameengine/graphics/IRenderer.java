@@ -5,10 +5,42 @@ public interface IRenderer {
     void endFrame();
     
     void drawRect(float x, float y, float width, float height, float r, float g, float b, float a);
+    // segments 为多边形边数上限（小于 3 时不绘制）；后端可对小半径使用更少的边，软件后端按精确圆光栅化
     void drawCircle(float x, float y, float radius, int segments, float r, float g, float b, float a);
     void drawLine(float x1, float y1, float x2, float y2, float r, float g, float b, float a);
     void drawText(float x, float y, String text, float r, float g, float b, float a);
     
+    /**
+     * Starts a static layer: content drawn until endStaticLayer() is cached by the
+     * backend and composited as a whole. Returns true if the cache is missing or
+     * invalidated and the caller must draw the layer's content now; false if the
+     * cached image will be used and the content should be skipped. Layers do not
+     * nest. Backends without caching always return true (plain drawing).
+     */
+    default boolean beginStaticLayer(int layer) {
+        return true;
+    }
+    
+    // 结束静态图层并把缓存画到当前位置（按绘制顺序）
+    default void endStaticLayer() {
+    }
+    
+    // 后端是否真的缓存静态图层（不缓存时 beginStaticLayer 总返回 true）；不得调用图形 API，可在任意线程查询
+    default boolean cachesStaticLayers() {
+        return false;
+    }
+    
+    // 图层内容变化后调用，下一次 beginStaticLayer 会返回 true
+    default void invalidateStaticLayer(int layer) {
+    }
+    
+    default void invalidateStaticLayers() {
+    }
+    
+    // 设置之后提交的绘制命令所在的图层与 z 序；只有排序型渲染器（RenderQueue）会使用
+    default void setDrawOrder(int layer, int z) {
+    }
+    
     boolean shouldClose();
     void pollEvents();
     void cleanup();
@@ -17,4 +49,3 @@ public interface IRenderer {
     int getHeight();
     String getTitle();
 }
-
@@ -0,0 +1,129 @@
+package com.gameengine.graphics;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * IRenderer that only records draw calls into a RenderCommandBuffer. Size, title
+ * and window queries are forwarded to the real backend, which later executes the
+ * buffer on its own (GL) thread. Scene code can therefore render from any thread.
+ * Static layers are tracked here as well, so cached content is recorded only
+ * when it has to be redrawn; backends that do not cache get it every frame.
+ */
+public class RecordingRenderer implements IRenderer {
+    private final IRenderer backend;
+    private RenderCommandBuffer buffer;
+    private final Set<Integer> validLayers;
+    private Integer activeLayer;
+    
+    public RecordingRenderer(IRenderer backend) {
+        this.backend = backend;
+        this.buffer = new RenderCommandBuffer();
+        this.validLayers = new HashSet<>();
+    }
+    
+    public void setBuffer(RenderCommandBuffer buffer) {
+        this.buffer = buffer;
+    }
+    
+    public RenderCommandBuffer getBuffer() {
+        return buffer;
+    }
+    
+    public IRenderer getBackend() {
+        return backend;
+    }
+    
+    @Override
+    public void beginFrame() {
+        buffer.clear();
+    }
+    
+    @Override
+    public void endFrame() {
+    }
+    
+    @Override
+    public void drawRect(float x, float y, float width, float height, float r, float g, float b, float a) {
+        buffer.rect(x, y, width, height, r, g, b, a);
+    }
+    
+    @Override
+    public void drawCircle(float x, float y, float radius, int segments, float r, float g, float b, float a) {
+        buffer.circle(x, y, radius, segments, r, g, b, a);
+    }
+    
+    @Override
+    public void drawLine(float x1, float y1, float x2, float y2, float r, float g, float b, float a) {
+        buffer.line(x1, y1, x2, y2, r, g, b, a);
+    }
+    
+    @Override
+    public void drawText(float x, float y, String text, float r, float g, float b, float a) {
+        if (text == null || text.isEmpty()) return;
+        buffer.text(x, y, text, r, g, b, a);
+    }
+    
+    @Override
+    public boolean beginStaticLayer(int layer) {
+        if (activeLayer != null) return true;
+        activeLayer = layer;
+        // 后端不缓存图层时每帧都要录制内容，否则回放时该图层为空
+        boolean redraw = !backend.cachesStaticLayers() || !validLayers.contains(layer);
+        buffer.beginLayer(layer, redraw);
+        return redraw;
+    }
+    
+    @Override
+    public boolean cachesStaticLayers() {
+        return backend.cachesStaticLayers();
+    }
+    
+    @Override
+    public void endStaticLayer() {
+        if (activeLayer == null) return;
+        validLayers.add(activeLayer);
+        activeLayer = null;
+        buffer.endLayer();
+    }
+    
+    @Override
+    public void invalidateStaticLayer(int layer) {
+        validLayers.remove(layer);
+    }
+    
+    @Override
+    public void invalidateStaticLayers() {
+        validLayers.clear();
+    }
+    
+    // 窗口相关操作必须在主线程上调用后端，这里不代理
+    @Override
+    public boolean shouldClose() {
+        return false;
+    }
+    
+    @Override
+    public void pollEvents() {
+    }
+    
+    @Override
+    public void cleanup() {
+        buffer.clear();
+    }
+    
+    @Override
+    public int getWidth() {
+        return backend.getWidth();
+    }
+    
+    @Override
+    public int getHeight() {
+        return backend.getHeight();
+    }
+    
+    @Override
+    public String getTitle() {
+        return backend.getTitle();
+    }
+}
@@ -1,6 +1,8 @@
 package com.gameengine.graphics;
 
 public enum RenderBackend {
-    GPU
+    GPU,
+    // 无窗口的 CPU 光栅化，用于 CI 与离线导出
+    SOFTWARE
 }
 
@@ -0,0 +1,168 @@
+package com.gameengine.graphics;
+
+import java.util.Arrays;
+
+/**
+ * Compact list of draw calls: one opcode per command in an int[], its arguments in
+ * a float[] (fixed stride) and text in a parallel String[]. Recording never creates
+ * per-command objects, and a buffer can be replayed into any IRenderer as many
+ * times as needed (render thread submission, benchmarks).
+ */
+public class RenderCommandBuffer {
+    public static final int RECT = 0;
+    public static final int CIRCLE = 1;
+    public static final int LINE = 2;
+    public static final int TEXT = 3;
+    public static final int LAYER_BEGIN = 4;
+    public static final int LAYER_END = 5;
+    
+    // 每条命令固定占用的 float 数：几何参数 4 个 + 颜色 4 个 + 圆的分段数
+    private static final int STRIDE = 9;
+    
+    private int[] ops;
+    private float[] args;
+    private String[] texts;
+    private int size;
+    
+    public RenderCommandBuffer() {
+        this(256);
+    }
+    
+    public RenderCommandBuffer(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        this.ops = new int[capacity];
+        this.args = new float[capacity * STRIDE];
+        this.texts = new String[capacity];
+    }
+    
+    public void rect(float x, float y, float w, float h, float r, float g, float b, float a) {
+        int i = add(RECT);
+        args[i] = x;
+        args[i + 1] = y;
+        args[i + 2] = w;
+        args[i + 3] = h;
+        color(i, r, g, b, a);
+    }
+    
+    public void circle(float x, float y, float radius, int segments, float r, float g, float b, float a) {
+        int i = add(CIRCLE);
+        args[i] = x;
+        args[i + 1] = y;
+        args[i + 2] = radius;
+        args[i + 8] = segments;
+        color(i, r, g, b, a);
+    }
+    
+    public void line(float x1, float y1, float x2, float y2, float r, float g, float b, float a) {
+        int i = add(LINE);
+        args[i] = x1;
+        args[i + 1] = y1;
+        args[i + 2] = x2;
+        args[i + 3] = y2;
+        color(i, r, g, b, a);
+    }
+    
+    public void text(float x, float y, String text, float r, float g, float b, float a) {
+        int i = add(TEXT);
+        texts[size - 1] = text;
+        args[i] = x;
+        args[i + 1] = y;
+        color(i, r, g, b, a);
+    }
+    
+    // redraw 表示其后到 LAYER_END 为止录有该静态图层的完整内容
+    public void beginLayer(int layer, boolean redraw) {
+        int i = add(LAYER_BEGIN);
+        args[i] = layer;
+        args[i + 1] = redraw ? 1 : 0;
+    }
+    
+    public void endLayer() {
+        add(LAYER_END);
+    }
+    
+    private int add(int op) {
+        if (size == ops.length) {
+            int n = ops.length * 2;
+            ops = Arrays.copyOf(ops, n);
+            args = Arrays.copyOf(args, n * STRIDE);
+            texts = Arrays.copyOf(texts, n);
+        }
+        ops[size] = op;
+        return size++ * STRIDE;
+    }
+    
+    private void color(int i, float r, float g, float b, float a) {
+        args[i + 4] = r;
+        args[i + 5] = g;
+        args[i + 6] = b;
+        args[i + 7] = a;
+    }
+    
+    /**
+     * Issues every recorded command to target, in recording order. A static layer
+     * recorded with content invalidates the target's cache first; if the target
+     * still has the layer cached, the recorded content is skipped.
+     */
+    public void replay(IRenderer target) {
+        for (int c = 0; c < size; c++) {
+            switch (ops[c]) {
+                case LAYER_BEGIN:
+                    int layer = (int) args[c * STRIDE];
+                    boolean hasContent = args[c * STRIDE + 1] != 0;
+                    if (hasContent) {
+                        target.invalidateStaticLayer(layer);
+                    }
+                    if (!target.beginStaticLayer(layer) || !hasContent) {
+                        while (c + 1 < size && ops[c + 1] != LAYER_END) c++;
+                    }
+                    break;
+                case LAYER_END:
+                    target.endStaticLayer();
+                    break;
+                default:
+                    issue(target, c);
+                    break;
+            }
+        }
+    }
+    
+    /**
+     * Issues the single draw command at index c (RECT, CIRCLE, LINE or TEXT);
+     * layer markers are ignored. Used to replay commands in a different order.
+     */
+    public void issue(IRenderer target, int c) {
+        int i = c * STRIDE;
+        float r = args[i + 4], g = args[i + 5], b = args[i + 6], a = args[i + 7];
+        switch (ops[c]) {
+            case RECT:
+                target.drawRect(args[i], args[i + 1], args[i + 2], args[i + 3], r, g, b, a);
+                break;
+            case CIRCLE:
+                target.drawCircle(args[i], args[i + 1], args[i + 2], (int) args[i + 8], r, g, b, a);
+                break;
+            case LINE:
+                target.drawLine(args[i], args[i + 1], args[i + 2], args[i + 3], r, g, b, a);
+                break;
+            case TEXT:
+                target.drawText(args[i], args[i + 1], texts[c], r, g, b, a);
+                break;
+            default:
+                break;
+        }
+    }
+    
+    public int op(int c) {
+        return ops[c];
+    }
+    
+    // 只重置计数并释放文本引用，数组容量保留以便下一帧复用
+    public void clear() {
+        Arrays.fill(texts, 0, size, null);
+        size = 0;
+    }
+    
+    public int size() {
+        return size;
+    }
+}
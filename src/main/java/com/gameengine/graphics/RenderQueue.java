@@ -0,0 +1,228 @@
+package com.gameengine.graphics;
+
+import java.util.Arrays;
+
+/**
+ * IRenderer that collects a frame's draw calls and issues them to the target in a
+ * deterministic order. Every command gets a 64-bit sort key packing
+ * (layer, z, run, pipeline state, submission index), so a single primitive sort
+ * orders commands by layer, then z, then groups shapes before text within a run.
+ * A run ends when a shape overlaps text queued earlier in it, so moving shapes
+ * ahead of text never changes what ends up on top. Static layers act as sort
+ * barriers: pending commands are flushed before and after them.
+ */
+public class RenderQueue implements IRenderer {
+    public static final int STATE_SHAPES = 0;
+    public static final int STATE_TEXT = 1;
+    
+    // 键布局（高位到低位）：图层 16 位 | z 16 位 | 段号 11 位 | 状态 1 位 | 提交序号 20 位
+    private static final int SEQ_BITS = 20;
+    private static final int STATE_SHIFT = SEQ_BITS;
+    private static final int RUN_SHIFT = STATE_SHIFT + 1;
+    private static final int Z_SHIFT = 32;
+    private static final int LAYER_SHIFT = 48;
+    private static final int MAX_COMMANDS = 1 << SEQ_BITS;
+    private static final int MAX_RUNS = 1 << (Z_SHIFT - RUN_SHIFT);
+    private static final long SEQ_MASK = MAX_COMMANDS - 1;
+    // 两个后端的字形都画在 (x, y) 右下方 32px 高的单行内、每字宽不足 32px，按每字一整格估算（偏大即可）
+    private static final float TEXT_CELL = 32f;
+    
+    private IRenderer target;
+    private final RenderCommandBuffer commands;
+    private long[] keys;
+    private long orderBits;
+    private int layer;
+    private int z;
+    private int run;
+    // 当前段内已提交文字的包围盒（min > max 表示没有文字）
+    private float textMinX, textMinY, textMaxX, textMaxY;
+    
+    public RenderQueue(IRenderer target) {
+        this.target = target;
+        this.commands = new RenderCommandBuffer(1024);
+        this.keys = new long[1024];
+        setDrawOrder(0, 0);
+        resetRuns();
+    }
+    
+    public void setTarget(IRenderer target) {
+        flush();
+        this.target = target;
+    }
+    
+    public IRenderer getTarget() {
+        return target;
+    }
+    
+    /**
+     * Sets the layer and z-order (each clamped to the 16-bit signed range) for the
+     * commands submitted after this call. Lower values are drawn first.
+     */
+    @Override
+    public void setDrawOrder(int layer, int z) {
+        this.layer = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, layer));
+        this.z = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, z));
+        // 图层占最高位，按有符号比较即可；z 加偏移后为无符号数，保证负 z 排在前面
+        this.orderBits = ((long) this.layer << LAYER_SHIFT)
+                       | ((long) (this.z - Short.MIN_VALUE) << Z_SHIFT);
+    }
+    
+    public int getLayer() {
+        return layer;
+    }
+    
+    public int getZ() {
+        return z;
+    }
+    
+    @Override
+    public void beginFrame() {
+        commands.clear();
+        resetRuns();
+        setDrawOrder(0, 0);
+    }
+    
+    @Override
+    public void endFrame() {
+        flush();
+    }
+    
+    @Override
+    public void drawRect(float x, float y, float width, float height, float r, float g, float b, float a) {
+        commands.rect(x, y, width, height, r, g, b, a);
+        pushShape(Math.min(x, x + width), Math.min(y, y + height), Math.max(x, x + width), Math.max(y, y + height));
+    }
+    
+    @Override
+    public void drawCircle(float x, float y, float radius, int segments, float r, float g, float b, float a) {
+        commands.circle(x, y, radius, segments, r, g, b, a);
+        float rr = Math.abs(radius);
+        pushShape(x - rr, y - rr, x + rr, y + rr);
+    }
+    
+    @Override
+    public void drawLine(float x1, float y1, float x2, float y2, float r, float g, float b, float a) {
+        commands.line(x1, y1, x2, y2, r, g, b, a);
+        pushShape(Math.min(x1, x2) - 1, Math.min(y1, y2) - 1, Math.max(x1, x2) + 1, Math.max(y1, y2) + 1);
+    }
+    
+    @Override
+    public void drawText(float x, float y, String text, float r, float g, float b, float a) {
+        if (text == null || text.isEmpty()) return;
+        commands.text(x, y, text, r, g, b, a);
+        textMinX = Math.min(textMinX, x);
+        textMinY = Math.min(textMinY, y);
+        textMaxX = Math.max(textMaxX, x + text.length() * TEXT_CELL);
+        textMaxY = Math.max(textMaxY, y + TEXT_CELL);
+        push(STATE_TEXT);
+    }
+    
+    // 形状与本段已提交的文字重叠时必须画在文字之后，开始新的一段
+    private void pushShape(float minX, float minY, float maxX, float maxY) {
+        if (minX <= textMaxX && maxX >= textMinX && minY <= textMaxY && maxY >= textMinY) {
+            run++;
+            clearTextBounds();
+        }
+        push(STATE_SHAPES);
+    }
+    
+    private void push(int state) {
+        int c = commands.size() - 1;
+        if (c == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+        }
+        keys[c] = orderBits | ((long) run << RUN_SHIFT) | ((long) state << STATE_SHIFT) | c;
+        // 序号或段号用尽时提前提交（极端情况，排序只在已收集的命令内进行）
+        if (c + 1 == MAX_COMMANDS || run + 1 == MAX_RUNS) {
+            flush();
+        }
+    }
+    
+    private void resetRuns() {
+        run = 0;
+        clearTextBounds();
+    }
+    
+    private void clearTextBounds() {
+        textMinX = Float.POSITIVE_INFINITY;
+        textMinY = Float.POSITIVE_INFINITY;
+        textMaxX = Float.NEGATIVE_INFINITY;
+        textMaxY = Float.NEGATIVE_INFINITY;
+    }
+    
+    /**
+     * Sorts the pending commands and issues them to the target, then empties the
+     * queue. The engine calls this once per frame after the scene has rendered.
+     */
+    public void flush() {
+        int n = commands.size();
+        if (n == 0) return;
+        Arrays.sort(keys, 0, n);
+        for (int i = 0; i < n; i++) {
+            commands.issue(target, (int) (keys[i] & SEQ_MASK));
+        }
+        commands.clear();
+        resetRuns();
+    }
+    
+    public int size() {
+        return commands.size();
+    }
+    
+    @Override
+    public boolean beginStaticLayer(int layer) {
+        flush();
+        return target.beginStaticLayer(layer);
+    }
+    
+    @Override
+    public boolean cachesStaticLayers() {
+        return target.cachesStaticLayers();
+    }
+    
+    @Override
+    public void endStaticLayer() {
+        flush();
+        target.endStaticLayer();
+    }
+    
+    @Override
+    public void invalidateStaticLayer(int layer) {
+        target.invalidateStaticLayer(layer);
+    }
+    
+    @Override
+    public void invalidateStaticLayers() {
+        target.invalidateStaticLayers();
+    }
+    
+    @Override
+    public boolean shouldClose() {
+        return target.shouldClose();
+    }
+    
+    @Override
+    public void pollEvents() {
+        target.pollEvents();
+    }
+    
+    @Override
+    public void cleanup() {
+        commands.clear();
+    }
+    
+    @Override
+    public int getWidth() {
+        return target.getWidth();
+    }
+    
+    @Override
+    public int getHeight() {
+        return target.getHeight();
+    }
+    
+    @Override
+    public String getTitle() {
+        return target.getTitle();
+    }
+}
@@ -0,0 +1,471 @@
+package com.gameengine.graphics;
+
+import com.gameengine.core.WorkerPool;
+
+import javax.imageio.ImageIO;
+import java.awt.Font;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * Headless renderer that rasterizes into an int[] ARGB framebuffer. Draw calls are
+ * only recorded during the frame; endFrame() rasterizes them in horizontal bands,
+ * in parallel when a WorkerPool is set. Every band replays all commands in order,
+ * clipped to its own rows, so the output does not depend on the thread count.
+ * Geometry follows the GPU backend: lines are 2.5px quads and text uses the same
+ * 32px glyph cells and advance. Static layers are rasterized once into their own
+ * premultiplied ARGB buffer and composited as a single command until invalidated.
+ */
+public class SoftwareRenderer implements IRenderer {
+    private static final int BAND_HEIGHT = 32;
+    private static final int PARAMS = 8;
+    private static final int RECT = 0, CIRCLE = 1, QUAD = 2, GLYPH = 3, LAYER = 4;
+    private static final float LINE_WIDTH = 2.5f;
+    private static final int CLEAR_COLOR = 0xFF333333;
+    
+    private final int width;
+    private final int height;
+    private final String title;
+    private final int[] framebuffer;
+    private final int bandCount;
+    
+    // 本帧记录的绘制命令：类型、参数（每条 PARAMS 个 float）、颜色（ARGB）
+    private int[] types;
+    private float[] params;
+    private int[] colors;
+    private int commandCount;
+    
+    private final Font font;
+    private final int fontSize;
+    private final List<byte[]> glyphMasks;
+    private final Map<Character, Integer> glyphIndex;
+    
+    private WorkerPool workerPool;
+    private boolean closeRequested;
+    private final IntConsumer rasterizeBand = this::rasterizeBand;
+    
+    // 静态图层缓存（预乘 ARGB），按图层号分配槽位
+    private final List<int[]> layerBuffers;
+    private final Map<Integer, Integer> layerSlots;
+    private final Set<Integer> validLayers;
+    private Integer activeLayer;
+    private int activeLayerStart;
+    private boolean activeLayerRedraw;
+    private int[] layerTarget;
+    private final IntConsumer rasterizeLayerBand = this::rasterizeLayerBand;
+    
+    public SoftwareRenderer(int width, int height, String title) {
+        this.width = width;
+        this.height = height;
+        this.title = title;
+        this.framebuffer = new int[width * height];
+        this.bandCount = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+        this.types = new int[1024];
+        this.params = new float[1024 * PARAMS];
+        this.colors = new int[1024];
+        this.font = new Font(Font.MONOSPACED, Font.BOLD, 32);
+        this.fontSize = 32;
+        this.glyphMasks = new ArrayList<>();
+        this.glyphIndex = new HashMap<>();
+        this.layerBuffers = new ArrayList<>();
+        this.layerSlots = new HashMap<>();
+        this.validLayers = new HashSet<>();
+    }
+    
+    public void setWorkerPool(WorkerPool workerPool) {
+        this.workerPool = workerPool;
+    }
+    
+    @Override
+    public void beginFrame() {
+        commandCount = 0;
+    }
+    
+    @Override
+    public void endFrame() {
+        endStaticLayer();
+        forEachBand(rasterizeBand);
+    }
+    
+    private void forEachBand(IntConsumer body) {
+        if (workerPool != null) {
+            workerPool.parallelFor(bandCount, body);
+        } else {
+            for (int band = 0; band < bandCount; band++) {
+                body.accept(band);
+            }
+        }
+    }
+    
+    @Override
+    public boolean beginStaticLayer(int layer) {
+        if (activeLayer != null) return true;
+        activeLayer = layer;
+        activeLayerStart = commandCount;
+        activeLayerRedraw = !validLayers.contains(layer);
+        return activeLayerRedraw;
+    }
+    
+    @Override
+    public boolean cachesStaticLayers() {
+        return true;
+    }
+    
+    @Override
+    public void endStaticLayer() {
+        if (activeLayer == null) return;
+        int layer = activeLayer;
+        activeLayer = null;
+        
+        Integer slot = layerSlots.get(layer);
+        if (slot == null) {
+            slot = layerBuffers.size();
+            layerBuffers.add(new int[width * height]);
+            layerSlots.put(layer, slot);
+        }
+        if (activeLayerRedraw) {
+            // 图层内记录的命令立即光栅化到缓存，然后从本帧命令中移除
+            layerTarget = layerBuffers.get(slot);
+            forEachBand(rasterizeLayerBand);
+            layerTarget = null;
+            commandCount = activeLayerStart;
+            validLayers.add(layer);
+        }
+        int i = add(LAYER, 1, 1, 1, 1);
+        params[i] = slot;
+    }
+    
+    @Override
+    public void invalidateStaticLayer(int layer) {
+        validLayers.remove(layer);
+    }
+    
+    @Override
+    public void invalidateStaticLayers() {
+        validLayers.clear();
+    }
+    
+    @Override
+    public void drawRect(float x, float y, float w, float h, float r, float g, float b, float a) {
+        int i = add(RECT, r, g, b, a);
+        if (i < 0) return;
+        params[i] = x;
+        params[i + 1] = y;
+        params[i + 2] = x + w;
+        params[i + 3] = y + h;
+    }
+    
+    @Override
+    public void drawCircle(float x, float y, float radius, int segments, float r, float g, float b, float a) {
+        int i = add(CIRCLE, r, g, b, a);
+        if (i < 0) return;
+        params[i] = x;
+        params[i + 1] = y;
+        params[i + 2] = radius;
+    }
+    
+    @Override
+    public void drawLine(float x1, float y1, float x2, float y2, float r, float g, float b, float a) {
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        float len = (float) Math.sqrt(dx * dx + dy * dy);
+        if (len < 0.001f) return;
+        float scale = LINE_WIDTH * 0.5f / len;
+        float nx = -dy * scale;
+        float ny = dx * scale;
+        
+        int i = add(QUAD, r, g, b, a);
+        if (i < 0) return;
+        params[i] = x1 - nx;
+        params[i + 1] = y1 - ny;
+        params[i + 2] = x1 + nx;
+        params[i + 3] = y1 + ny;
+        params[i + 4] = x2 + nx;
+        params[i + 5] = y2 + ny;
+        params[i + 6] = x2 - nx;
+        params[i + 7] = y2 - ny;
+    }
+    
+    @Override
+    public void drawText(float x, float y, String text, float r, float g, float b, float a) {
+        if (text == null || text.isEmpty()) return;
+        float charWidth = fontSize * 0.6f;
+        float currentX = x;
+        for (int c = 0; c < text.length(); c++) {
+            char ch = text.charAt(c);
+            if (ch == ' ') {
+                currentX += charWidth * 0.5f;
+                continue;
+            }
+            // 遮罩在记录阶段（主线程）生成，光栅化线程只读
+            int glyph = glyphFor(ch);
+            int i = add(GLYPH, r, g, b, a);
+            if (i < 0) return;
+            params[i] = currentX;
+            params[i + 1] = y;
+            params[i + 2] = currentX + charWidth;
+            params[i + 3] = y + fontSize;
+            params[i + 4] = glyph;
+            currentX += charWidth + 1.0f;
+        }
+    }
+    
+    private int add(int type, float r, float g, float b, float a) {
+        if (a <= 0) return -1;
+        if (commandCount == types.length) {
+            int n = types.length * 2;
+            types = Arrays.copyOf(types, n);
+            params = Arrays.copyOf(params, n * PARAMS);
+            colors = Arrays.copyOf(colors, n);
+        }
+        int c = commandCount++;
+        types[c] = type;
+        colors[c] = (toByte(a) << 24) | (toByte(r) << 16) | (toByte(g) << 8) | toByte(b);
+        return c * PARAMS;
+    }
+    
+    private static int toByte(float v) {
+        return v <= 0 ? 0 : (v >= 1 ? 255 : (int) (v * 255 + 0.5f));
+    }
+    
+    private int glyphFor(char c) {
+        Integer index = glyphIndex.get(c);
+        if (index != null) return index;
+        BufferedImage img = GlyphAtlas.rasterizeGlyph(font, fontSize, c);
+        int[] pixels = img.getRGB(0, 0, fontSize, fontSize, null, 0, fontSize);
+        byte[] mask = new byte[fontSize * fontSize];
+        for (int i = 0; i < pixels.length; i++) {
+            mask[i] = (byte) (pixels[i] >>> 24);
+        }
+        glyphMasks.add(mask);
+        glyphIndex.put(c, glyphMasks.size() - 1);
+        return glyphMasks.size() - 1;
+    }
+    
+    private void rasterizeBand(int band) {
+        int y0 = band * BAND_HEIGHT;
+        int y1 = Math.min(height, y0 + BAND_HEIGHT);
+        Arrays.fill(framebuffer, y0 * width, y1 * width, CLEAR_COLOR);
+        rasterize(framebuffer, false, 0, commandCount, y0, y1);
+    }
+    
+    private void rasterizeLayerBand(int band) {
+        int y0 = band * BAND_HEIGHT;
+        int y1 = Math.min(height, y0 + BAND_HEIGHT);
+        Arrays.fill(layerTarget, y0 * width, y1 * width, 0);
+        rasterize(layerTarget, true, activeLayerStart, commandCount, y0, y1);
+    }
+    
+    // premul 为 true 时目标是透明的图层缓存，按预乘 alpha 累积
+    private void rasterize(int[] dst, boolean premul, int from, int to, int y0, int y1) {
+        for (int c = from; c < to; c++) {
+            int p = c * PARAMS;
+            switch (types[c]) {
+                case RECT:
+                    fillRect(dst, premul, params[p], params[p + 1], params[p + 2], params[p + 3], colors[c], y0, y1);
+                    break;
+                case CIRCLE:
+                    fillCircle(dst, premul, params[p], params[p + 1], params[p + 2], colors[c], y0, y1);
+                    break;
+                case QUAD:
+                    fillQuad(dst, premul, p, colors[c], y0, y1);
+                    break;
+                case GLYPH:
+                    fillGlyph(dst, premul, p, colors[c], y0, y1);
+                    break;
+                case LAYER:
+                    compositeLayer(dst, layerBuffers.get((int) params[p]), y0, y1);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+    
+    // 以像素中心采样：覆盖 [ceil(min - 0.5), ceil(max - 0.5)) 的像素
+    private static int first(float v) {
+        return (int) Math.ceil(v - 0.5f);
+    }
+    
+    private void fillRect(int[] dst, boolean premul, float minX, float minY, float maxX, float maxY, int color, int bandY0, int bandY1) {
+        int ys = Math.max(bandY0, first(minY));
+        int ye = Math.min(bandY1, first(maxY));
+        int xs = Math.max(0, first(minX));
+        int xe = Math.min(width, first(maxX));
+        for (int y = ys; y < ye; y++) {
+            span(dst, premul, y, xs, xe, color);
+        }
+    }
+    
+    private void fillCircle(int[] dst, boolean premul, float cx, float cy, float radius, int color, int bandY0, int bandY1) {
+        int ys = Math.max(bandY0, first(cy - radius));
+        int ye = Math.min(bandY1, first(cy + radius));
+        float r2 = radius * radius;
+        for (int y = ys; y < ye; y++) {
+            float dy = y + 0.5f - cy;
+            float d = r2 - dy * dy;
+            if (d < 0) continue;
+            float half = (float) Math.sqrt(d);
+            span(dst, premul, y, Math.max(0, first(cx - half)), Math.min(width, first(cx + half)), color);
+        }
+    }
+    
+    // 凸四边形（线段）：逐行求与四条边的交点区间
+    private void fillQuad(int[] dst, boolean premul, int p, int color, int bandY0, int bandY1) {
+        float minY = params[p + 1], maxY = minY;
+        for (int k = 3; k < 8; k += 2) {
+            minY = Math.min(minY, params[p + k]);
+            maxY = Math.max(maxY, params[p + k]);
+        }
+        int ys = Math.max(bandY0, first(minY));
+        int ye = Math.min(bandY1, first(maxY));
+        for (int y = ys; y < ye; y++) {
+            float yc = y + 0.5f;
+            float left = Float.MAX_VALUE;
+            float right = -Float.MAX_VALUE;
+            for (int e = 0; e < 4; e++) {
+                float ax = params[p + e * 2], ay = params[p + e * 2 + 1];
+                int n = ((e + 1) & 3) * 2;
+                float bx = params[p + n], by = params[p + n + 1];
+                if ((yc >= ay && yc < by) || (yc >= by && yc < ay)) {
+                    float x = ax + (yc - ay) * (bx - ax) / (by - ay);
+                    left = Math.min(left, x);
+                    right = Math.max(right, x);
+                }
+            }
+            if (left <= right) {
+                span(dst, premul, y, Math.max(0, first(left)), Math.min(width, first(right)), color);
+            }
+        }
+    }
+    
+    private void fillGlyph(int[] dst, boolean premul, int p, int color, int bandY0, int bandY1) {
+        float gx0 = params[p], gy0 = params[p + 1];
+        float gw = params[p + 2] - gx0, gh = params[p + 3] - gy0;
+        byte[] mask = glyphMasks.get((int) params[p + 4]);
+        int ys = Math.max(bandY0, first(gy0));
+        int ye = Math.min(bandY1, first(params[p + 3]));
+        int xs = Math.max(0, first(gx0));
+        int xe = Math.min(width, first(params[p + 2]));
+        int alpha = color >>> 24;
+        for (int y = ys; y < ye; y++) {
+            int v = Math.min(fontSize - 1, (int) ((y + 0.5f - gy0) / gh * fontSize));
+            int row = y * width;
+            for (int x = xs; x < xe; x++) {
+                int u = Math.min(fontSize - 1, (int) ((x + 0.5f - gx0) / gw * fontSize));
+                int coverage = mask[v * fontSize + u] & 0xFF;
+                if (coverage == 0) continue;
+                int sa = coverage * alpha / 255;
+                dst[row + x] = premul ? blendPremultiplied(dst[row + x], color, sa) : blend(dst[row + x], color, sa);
+            }
+        }
+    }
+    
+    private void span(int[] dst, boolean premul, int y, int xs, int xe, int color) {
+        if (xs >= xe) return;
+        int sa = color >>> 24;
+        int row = y * width;
+        if (sa == 255) {
+            Arrays.fill(dst, row + xs, row + xe, color);
+            return;
+        }
+        for (int x = xs; x < xe; x++) {
+            dst[row + x] = premul ? blendPremultiplied(dst[row + x], color, sa) : blend(dst[row + x], color, sa);
+        }
+    }
+    
+    // 预乘图层缓存按 (ONE, ONE_MINUS_SRC_ALPHA) 叠加到帧缓冲
+    private void compositeLayer(int[] dst, int[] layer, int bandY0, int bandY1) {
+        for (int i = bandY0 * width, end = bandY1 * width; i < end; i++) {
+            int src = layer[i];
+            int sa = src >>> 24;
+            if (sa == 0) continue;
+            if (sa == 255) {
+                dst[i] = src;
+                continue;
+            }
+            int d = dst[i];
+            int inv = 255 - sa;
+            int r = ((src >> 16) & 0xFF) + (((d >> 16) & 0xFF) * inv + 127) / 255;
+            int g = ((src >> 8) & 0xFF) + (((d >> 8) & 0xFF) * inv + 127) / 255;
+            int b = (src & 0xFF) + ((d & 0xFF) * inv + 127) / 255;
+            dst[i] = 0xFF000000 | (Math.min(255, r) << 16) | (Math.min(255, g) << 8) | Math.min(255, b);
+        }
+    }
+    
+    // 源覆盖混合（SRC_ALPHA, ONE_MINUS_SRC_ALPHA），帧缓冲始终不透明
+    private static int blend(int dst, int src, int sa) {
+        int inv = 255 - sa;
+        int r = (((src >> 16) & 0xFF) * sa + ((dst >> 16) & 0xFF) * inv + 127) / 255;
+        int g = (((src >> 8) & 0xFF) * sa + ((dst >> 8) & 0xFF) * inv + 127) / 255;
+        int b = ((src & 0xFF) * sa + (dst & 0xFF) * inv + 127) / 255;
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+    
+    // 透明目标上的源覆盖混合，结果为预乘 ARGB
+    private static int blendPremultiplied(int dst, int src, int sa) {
+        int inv = 255 - sa;
+        int a = sa + ((dst >>> 24) * inv + 127) / 255;
+        int r = (((src >> 16) & 0xFF) * sa + ((dst >> 16) & 0xFF) * inv + 127) / 255;
+        int g = (((src >> 8) & 0xFF) * sa + ((dst >> 8) & 0xFF) * inv + 127) / 255;
+        int b = ((src & 0xFF) * sa + (dst & 0xFF) * inv + 127) / 255;
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+    
+    public int[] getFramebuffer() {
+        return framebuffer;
+    }
+    
+    public BufferedImage toImage() {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        img.setRGB(0, 0, width, height, framebuffer, 0, width);
+        return img;
+    }
+    
+    public void writePng(File file) throws IOException {
+        ImageIO.write(toImage(), "png", file);
+    }
+    
+    // 无窗口，由调用方决定何时结束（例如导出完所有帧）
+    public void requestClose() {
+        closeRequested = true;
+    }
+    
+    @Override
+    public boolean shouldClose() {
+        return closeRequested;
+    }
+    
+    @Override
+    public void pollEvents() {
+    }
+    
+    @Override
+    public void cleanup() {
+        commandCount = 0;
+    }
+    
+    @Override
+    public int getWidth() {
+        return width;
+    }
+    
+    @Override
+    public int getHeight() {
+        return height;
+    }
+    
+    @Override
+    public String getTitle() {
+        return title;
+    }
+}
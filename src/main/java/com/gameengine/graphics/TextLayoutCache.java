@@ -0,0 +1,117 @@
+package com.gameengine.graphics;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of laid-out text runs for one font. A run is the glyph quads of a
+ * string relative to its origin, stored as (dx, dy, u, v) per vertex, six vertices
+ * per glyph. Position and color are applied when the run is drawn, so a HUD label
+ * that only moves or changes color is laid out once. All runs are dropped when the
+ * atlas grows or resets, since their texture coordinates no longer match.
+ */
+public class TextLayoutCache {
+    private static final float[] EMPTY = new float[0];
+    
+    private final GlyphAtlas atlas;
+    private final float charWidth;
+    private final float charHeight;
+    private final float spacing;
+    private final Map<String, float[]> runs;
+    private int misses;
+    private int generation;
+    
+    public TextLayoutCache(GlyphAtlas atlas, float charWidth, float charHeight, float spacing, int maxEntries) {
+        this.atlas = atlas;
+        this.charWidth = charWidth;
+        this.charHeight = charHeight;
+        this.spacing = spacing;
+        this.runs = new LinkedHashMap<String, float[]>(maxEntries, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+    
+    public float[] get(String text) {
+        checkGeneration();
+        float[] run = runs.get(text);
+        if (run == null) {
+            run = layout(text);
+            // 排版途中图集被重置时，前面字形的坐标已失效，重新排一次
+            if (checkGeneration()) {
+                run = layout(text);
+            }
+            runs.put(text, run);
+            misses++;
+        }
+        return run;
+    }
+    
+    // get(text) 是否不需要重新排版（排版可能改动图集）
+    public boolean isCached(String text) {
+        return generation == atlas.getGeneration() && runs.containsKey(text);
+    }
+    
+    private boolean checkGeneration() {
+        if (generation == atlas.getGeneration()) return false;
+        generation = atlas.getGeneration();
+        runs.clear();
+        return true;
+    }
+    
+    // 排版规则与原逐字符绘制一致：空格前进半个字宽，其它字符前进字宽加间距
+    private float[] layout(String text) {
+        int glyphs = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) != ' ') glyphs++;
+        }
+        if (glyphs == 0) return EMPTY;
+        
+        float[] run = new float[glyphs * 6 * 4];
+        int n = 0;
+        float x = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ' ') {
+                x += charWidth * 0.5f;
+                continue;
+            }
+            int slot = atlas.slotFor(c);
+            if (slot >= 0) {
+                float u0 = atlas.u0(slot), v0 = atlas.v0(slot);
+                float u1 = atlas.u1(slot), v1 = atlas.v1(slot);
+                n = put(run, n, x, 0, u0, v0);
+                n = put(run, n, x + charWidth, 0, u1, v0);
+                n = put(run, n, x + charWidth, charHeight, u1, v1);
+                n = put(run, n, x, 0, u0, v0);
+                n = put(run, n, x + charWidth, charHeight, u1, v1);
+                n = put(run, n, x, charHeight, u0, v1);
+            }
+            x += charWidth + spacing;
+        }
+        return n == run.length ? run : Arrays.copyOf(run, n);
+    }
+    
+    private static int put(float[] run, int n, float dx, float dy, float u, float v) {
+        run[n] = dx;
+        run[n + 1] = dy;
+        run[n + 2] = u;
+        run[n + 3] = v;
+        return n + 4;
+    }
+    
+    public void clear() {
+        runs.clear();
+    }
+    
+    public int size() {
+        return runs.size();
+    }
+    
+    public int getMisses() {
+        return misses;
+    }
+}
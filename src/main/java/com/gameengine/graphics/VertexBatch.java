@@ -0,0 +1,123 @@
+package com.gameengine.graphics;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Client-side vertex array of colored 2D vertices (x, y, r, g, b, a), optionally
+ * with texture coordinates (x, y, u, v, r, g, b, a). Vertices are appended to a
+ * float[] and uploaded with one bulk put per flush; each flush is a single
+ * glDrawArrays. A change of primitive mode or a full buffer flushes first.
+ */
+public class VertexBatch {
+    private final boolean textured;
+    private final int floatsPerVertex;
+    private final int stride;
+    private final float[] data;
+    private final FloatBuffer buffer;
+    private final int maxVertices;
+    private int vertexCount;
+    private int mode;
+    private int drawCalls;
+    
+    public VertexBatch(int maxVertices) {
+        this(maxVertices, false);
+    }
+    
+    public VertexBatch(int maxVertices, boolean textured) {
+        this.textured = textured;
+        this.floatsPerVertex = textured ? 8 : 6;
+        this.stride = floatsPerVertex * 4;
+        this.maxVertices = maxVertices;
+        this.data = new float[maxVertices * floatsPerVertex];
+        this.buffer = BufferUtils.createFloatBuffer(maxVertices * floatsPerVertex);
+        this.mode = GL11.GL_TRIANGLES;
+    }
+    
+    /**
+     * Prepares room for count vertices of the given primitive mode, flushing the
+     * pending vertices if the mode differs or they would not fit.
+     */
+    public void begin(int primitiveMode, int count) {
+        if (primitiveMode != mode || vertexCount + count > maxVertices) {
+            flush();
+            mode = primitiveMode;
+        }
+    }
+    
+    public void vertex(float x, float y, float r, float g, float b, float a) {
+        int i = vertexCount * floatsPerVertex;
+        data[i] = x;
+        data[i + 1] = y;
+        data[i + 2] = r;
+        data[i + 3] = g;
+        data[i + 4] = b;
+        data[i + 5] = a;
+        vertexCount++;
+    }
+    
+    public void vertex(float x, float y, float u, float v, float r, float g, float b, float a) {
+        int i = vertexCount * floatsPerVertex;
+        data[i] = x;
+        data[i + 1] = y;
+        data[i + 2] = u;
+        data[i + 3] = v;
+        data[i + 4] = r;
+        data[i + 5] = g;
+        data[i + 6] = b;
+        data[i + 7] = a;
+        vertexCount++;
+    }
+    
+    public boolean hasRoom(int count) {
+        return vertexCount + count <= maxVertices;
+    }
+    
+    public boolean isEmpty() {
+        return vertexCount == 0;
+    }
+    
+    public void flush() {
+        if (vertexCount == 0) return;
+        
+        buffer.clear();
+        buffer.put(data, 0, vertexCount * floatsPerVertex);
+        buffer.flip();
+        
+        GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
+        GL11.glEnableClientState(GL11.GL_COLOR_ARRAY);
+        buffer.position(0);
+        GL11.glVertexPointer(2, GL11.GL_FLOAT, stride, buffer);
+        if (textured) {
+            GL11.glEnableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+            buffer.position(2);
+            GL11.glTexCoordPointer(2, GL11.GL_FLOAT, stride, buffer);
+            buffer.position(4);
+        } else {
+            buffer.position(2);
+        }
+        GL11.glColorPointer(4, GL11.GL_FLOAT, stride, buffer);
+        GL11.glDrawArrays(mode, 0, vertexCount);
+        if (textured) {
+            GL11.glDisableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+        }
+        GL11.glDisableClientState(GL11.GL_COLOR_ARRAY);
+        GL11.glDisableClientState(GL11.GL_VERTEX_ARRAY);
+        
+        vertexCount = 0;
+        drawCalls++;
+    }
+    
+    public int getMaxVertices() {
+        return maxVertices;
+    }
+    
+    // 返回并清零自上次调用以来的 glDrawArrays 次数
+    public int takeDrawCalls() {
+        int calls = drawCalls;
+        drawCalls = 0;
+        return calls;
+    }
+}
@@ -101,6 +101,21 @@ public class InputManager {
         return !pressedKeys.isEmpty();
     }
 
+    public int getJustPressedKeyCount() {
+        return justPressedKeys.size();
+    }
+    
+    // 把本帧刚按下的键码从 offset 起拷入 out，返回写入个数；没有按键时不做任何分配
+    public int copyJustPressedKeys(int[] out, int offset) {
+        if (justPressedKeys.isEmpty()) return 0;
+        int n = 0;
+        for (int key : justPressedKeys) {
+            if (offset + n >= out.length) break;
+            out[offset + n++] = key;
+        }
+        return n;
+    }
+
     public java.util.Set<Integer> getJustPressedKeysSnapshot() {
         return new java.util.HashSet<>(justPressedKeys);
     }
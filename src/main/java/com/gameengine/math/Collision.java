@@ -0,0 +1,42 @@
+package com.gameengine.math;
+
+public final class Collision {
+    private Collision() {}
+
+    /**
+     * Swept circle test: a point moving from (x0,y0) to (x1,y1) against a circle of
+     * the given radius centered at (cx,cy). Returns the normalized time of first
+     * contact in [0,1], or -1 if the segment never comes within the radius.
+     */
+    public static float sweepPointCircle(float x0, float y0, float x1, float y1,
+                                         float cx, float cy, float radius) {
+        float fx = x0 - cx;
+        float fy = y0 - cy;
+        float c = fx * fx + fy * fy - radius * radius;
+        if (c < 0) return 0f;
+
+        float dx = x1 - x0;
+        float dy = y1 - y0;
+        float a = dx * dx + dy * dy;
+        if (a < 1e-8f) return -1f;
+
+        float b = 2 * (fx * dx + fy * dy);
+        float disc = b * b - 4 * a * c;
+        if (disc < 0) return -1f;
+
+        float t = (-b - (float) Math.sqrt(disc)) / (2 * a);
+        return (t >= 0 && t <= 1) ? t : -1f;
+    }
+
+    /**
+     * Swept circle vs circle: both centers move linearly over the same step, so the
+     * test is done in A's frame of reference with B's motion subtracted.
+     */
+    public static float sweepCircles(float ax0, float ay0, float ax1, float ay1,
+                                     float bx0, float by0, float bx1, float by1,
+                                     float radiusSum) {
+        float relX1 = ax1 - (bx1 - bx0);
+        float relY1 = ay1 - (by1 - by0);
+        return sweepPointCircle(ax0, ay0, relX1, relY1, bx0, by0, radiusSum);
+    }
+}
@@ -0,0 +1,85 @@
+package com.gameengine.math;
+
+/**
+ * Table-driven trigonometry for rendering and effects, where a fraction of a
+ * degree of error is invisible. sin/cos read a 4096-entry table (about 0.09°
+ * resolution); unit-circle vertex tables are built once per segment count, and
+ * circleSegments picks a count from the radius so small circles stay cheap and
+ * large ones stay round.
+ */
+public final class FastMath {
+    public static final float PI = (float) Math.PI;
+    public static final float TWO_PI = (float) (Math.PI * 2.0);
+    
+    private static final int SIN_BITS = 12;
+    private static final int SIN_COUNT = 1 << SIN_BITS;
+    private static final int SIN_MASK = SIN_COUNT - 1;
+    private static final float RAD_TO_INDEX = SIN_COUNT / TWO_PI;
+    private static final int COS_OFFSET = SIN_COUNT / 4;
+    private static final float[] SIN_TABLE = new float[SIN_COUNT];
+    
+    public static final int MIN_CIRCLE_SEGMENTS = 6;
+    public static final int MAX_CIRCLE_SEGMENTS = 96;
+    // 多边形边与真实圆之间允许的最大偏差（像素）
+    private static final float CIRCLE_TOLERANCE = 0.25f;
+    private static final int MAX_TABLE_RADIUS = 1024;
+    private static final byte[] SEGMENTS_BY_RADIUS = new byte[MAX_TABLE_RADIUS + 1];
+    private static final float[][] UNIT_CIRCLES = new float[MAX_CIRCLE_SEGMENTS + 1][];
+    
+    static {
+        for (int i = 0; i < SIN_COUNT; i++) {
+            SIN_TABLE[i] = (float) Math.sin(i * Math.PI * 2.0 / SIN_COUNT);
+        }
+        // 单位圆顶点表全部预先生成，之后只读，可被任意线程共享
+        for (int n = 3; n <= MAX_CIRCLE_SEGMENTS; n++) {
+            float[] table = new float[(n + 1) * 2];
+            for (int i = 0; i <= n; i++) {
+                double angle = (i % n) * Math.PI * 2.0 / n;
+                table[i * 2] = (float) Math.cos(angle);
+                table[i * 2 + 1] = (float) Math.sin(angle);
+            }
+            UNIT_CIRCLES[n] = table;
+        }
+        for (int r = 0; r <= MAX_TABLE_RADIUS; r++) {
+            SEGMENTS_BY_RADIUS[r] = (byte) computeSegments(r);
+        }
+    }
+    
+    private FastMath() {}
+    
+    public static float sin(float radians) {
+        return SIN_TABLE[(int) (radians * RAD_TO_INDEX) & SIN_MASK];
+    }
+    
+    public static float cos(float radians) {
+        return SIN_TABLE[((int) (radians * RAD_TO_INDEX) + COS_OFFSET) & SIN_MASK];
+    }
+    
+    /**
+     * Returns a shared, read-only table of segments + 1 vertices (cos, sin pairs)
+     * around the unit circle, starting at angle 0; the last vertex repeats the
+     * first so consecutive pairs form the edges. Segments are clamped to
+     * [3, MAX_CIRCLE_SEGMENTS].
+     */
+    public static float[] unitCircle(int segments) {
+        return UNIT_CIRCLES[Math.max(3, Math.min(MAX_CIRCLE_SEGMENTS, segments))];
+    }
+    
+    /**
+     * Segment count that keeps the polygon within a quarter pixel of a circle of
+     * the given on-screen radius.
+     */
+    public static int circleSegments(float radius) {
+        if (radius <= 0) return MIN_CIRCLE_SEGMENTS;
+        if (radius >= MAX_TABLE_RADIUS) return MAX_CIRCLE_SEGMENTS;
+        return SEGMENTS_BY_RADIUS[(int) Math.ceil(radius)];
+    }
+    
+    // 弦高 r(1-cos(π/n)) 不超过容差时所需的边数
+    private static int computeSegments(int radius) {
+        if (radius <= CIRCLE_TOLERANCE) return MIN_CIRCLE_SEGMENTS;
+        double halfAngle = Math.acos(1.0 - CIRCLE_TOLERANCE / radius);
+        int n = (int) Math.ceil(Math.PI / halfAngle);
+        return Math.max(MIN_CIRCLE_SEGMENTS, Math.min(MAX_CIRCLE_SEGMENTS, n));
+    }
+}
@@ -0,0 +1,293 @@
+package com.gameengine.recording;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary format. After the magic "GREC" and a version byte, every record
+ * starts with a tag byte. Timestamps are varint millisecond deltas from the
+ * previous record, entity ids are interned (a new id is written once, then
+ * referenced by index), coordinates and sizes are zigzag varints of fixed-point
+ * values (1 / scale px, scale taken from RecordingConfig.quantizeDecimals) and
+ * colors are one byte per channel. Shape, size and color are written once per
+ * entity in an appearance record and again only when they change; keyframe and
+ * delta rows hold just the id and position. Delta records hold the changed
+ * entities followed by the ids of removed ones. Version 1 files, whose rows
+ * carry the appearance inline, are still read.
+ */
+public class BinaryRecordingCodec implements RecordingCodec {
+    public static final String NAME = "binary";
+
+    private static final byte[] MAGIC = {'G', 'R', 'E', 'C'};
+    private static final int VERSION = 2;
+    private static final int VERSION_INLINE_APPEARANCE = 1;
+
+    static final int TAG_HEADER = 1;
+    static final int TAG_KEYFRAME = 2;
+    static final int TAG_INPUT = 3;
+    static final int TAG_DELTA = 4;
+    static final int TAG_APPEARANCE = 5;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getFileExtension() {
+        return ".rec";
+    }
+
+    @Override
+    public boolean matches(byte[] head, int length) {
+        if (length < MAGIC.length) return false;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (head[i] != MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public RecordingCodec.Encoder newEncoder(RecordingConfig config) {
+        int decimals = Math.max(0, Math.min(4, config.quantizeDecimals));
+        int scale = 1;
+        for (int i = 0; i < decimals; i++) scale *= 10;
+        return new Encoder(scale);
+    }
+
+    @Override
+    public RecordingCodec.Decoder newDecoder(InputStream in) throws IOException {
+        ByteReader reader = new ByteReader(in);
+        byte[] head = new byte[MAGIC.length];
+        reader.readFully(head, 0, head.length);
+        if (!matches(head, head.length)) {
+            throw new IOException("不是二进制录像文件");
+        }
+        int version = reader.readByte();
+        if (version != VERSION && version != VERSION_INLINE_APPEARANCE) {
+            throw new IOException("不支持的录像版本: " + version);
+        }
+        return new Decoder(reader, version == VERSION_INLINE_APPEARANCE);
+    }
+
+    static int colorByte(float v) {
+        return v <= 0 ? 0 : (v >= 1 ? 255 : Math.round(v * 255));
+    }
+
+    private static final class Encoder implements RecordingCodec.Encoder {
+        private final int scale;
+        private final Map<String, Integer> ids = new HashMap<>();
+        private long lastMillis;
+
+        Encoder(int scale) {
+            this.scale = scale;
+        }
+
+        @Override
+        public void writeHeader(ByteWriter out, int width, int height) {
+            out.writeBytes(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(TAG_HEADER);
+            out.writeVarInt(width);
+            out.writeVarInt(height);
+            out.writeVarInt(scale);
+        }
+
+        @Override
+        public void writeAppearance(ByteWriter out, double t, EntityRecord e) {
+            out.writeByte(TAG_APPEARANCE);
+            writeTime(out, t);
+            writeId(out, e.id);
+            out.writeByte(e.shape);
+            if (e.shape != EntityRecord.SHAPE_CUSTOM) {
+                out.writeSignedVarInt(Math.round(e.w * scale));
+                out.writeSignedVarInt(Math.round(e.h * scale));
+                out.writeByte(colorByte(e.r));
+                out.writeByte(colorByte(e.g));
+                out.writeByte(colorByte(e.b));
+                out.writeByte(colorByte(e.a));
+            }
+        }
+
+        @Override
+        public void writeKeyframe(ByteWriter out, double t, List<EntityRecord> entities, int count) {
+            out.writeByte(TAG_KEYFRAME);
+            writeTime(out, t);
+            out.writeVarInt(count);
+            for (int i = 0; i < count; i++) {
+                writeEntity(out, entities.get(i));
+            }
+        }
+
+        @Override
+        public void writeDelta(ByteWriter out, double t, List<EntityRecord> changed, List<String> removed) {
+            out.writeByte(TAG_DELTA);
+            writeTime(out, t);
+            out.writeVarInt(changed.size());
+            for (int i = 0; i < changed.size(); i++) {
+                writeEntity(out, changed.get(i));
+            }
+            out.writeVarInt(removed.size());
+            for (int i = 0; i < removed.size(); i++) {
+                writeId(out, removed.get(i));
+            }
+        }
+
+        @Override
+        public void writeInput(ByteWriter out, double t, int[] keys, int count) {
+            out.writeByte(TAG_INPUT);
+            writeTime(out, t);
+            out.writeVarInt(count);
+            for (int i = 0; i < count; i++) {
+                out.writeSignedVarInt(keys[i]);
+            }
+        }
+
+        private void writeEntity(ByteWriter out, EntityRecord e) {
+            writeId(out, e.id);
+            out.writeSignedVarInt(Math.round(e.x * scale));
+            out.writeSignedVarInt(Math.round(e.y * scale));
+        }
+
+        private void writeTime(ByteWriter out, double t) {
+            long millis = Math.round(t * 1000.0);
+            out.writeSignedVarInt((int) (millis - lastMillis));
+            lastMillis = millis;
+        }
+
+        // 新 id 写入“下一个序号 + 字符串”，之后只写序号
+        private void writeId(ByteWriter out, String id) {
+            Integer index = ids.get(id);
+            if (index != null) {
+                out.writeVarInt(index);
+                return;
+            }
+            int next = ids.size();
+            ids.put(id, next);
+            out.writeVarInt(next);
+            out.writeString(id);
+        }
+    }
+
+    private static final class Decoder implements RecordingCodec.Decoder {
+        private final ByteReader in;
+        private final boolean inlineAppearance;
+        private final List<String> ids = new ArrayList<>();
+        private final List<EntityRecord> entities = new ArrayList<>();
+        private final List<String> removed = new ArrayList<>();
+        private int[] keys = new int[8];
+        private float scale = 100f;
+        private long millis;
+
+        Decoder(ByteReader in, boolean inlineAppearance) {
+            this.in = in;
+            this.inlineAppearance = inlineAppearance;
+        }
+
+        @Override
+        public boolean next(RecordVisitor visitor) throws IOException {
+            int tag = in.readTag();
+            switch (tag) {
+                case -1:
+                    return false;
+                case TAG_HEADER: {
+                    int width = in.readVarInt();
+                    int height = in.readVarInt();
+                    scale = Math.max(1, in.readVarInt());
+                    visitor.onHeader(width, height);
+                    return true;
+                }
+                case TAG_KEYFRAME: {
+                    double t = readTime();
+                    int count = readEntities(visitor, t);
+                    visitor.onKeyframe(t, entities.subList(0, count));
+                    return true;
+                }
+                case TAG_DELTA: {
+                    double t = readTime();
+                    int count = readEntities(visitor, t);
+                    int removedCount = in.readVarInt();
+                    removed.clear();
+                    for (int i = 0; i < removedCount; i++) {
+                        removed.add(readId());
+                    }
+                    visitor.onDelta(t, entities.subList(0, count), removed);
+                    return true;
+                }
+                case TAG_APPEARANCE: {
+                    double t = readTime();
+                    if (entities.isEmpty()) entities.add(new EntityRecord());
+                    EntityRecord e = entities.get(0);
+                    e.id = readId();
+                    readAppearance(e);
+                    visitor.onAppearance(t, e);
+                    return true;
+                }
+                case TAG_INPUT: {
+                    double t = readTime();
+                    int count = in.readVarInt();
+                    if (keys.length < count) keys = new int[count];
+                    for (int i = 0; i < count; i++) {
+                        keys[i] = in.readSignedVarInt();
+                    }
+                    visitor.onInput(t, Arrays.copyOf(keys, count));
+                    return true;
+                }
+                default:
+                    throw new IOException("未知的录像记录类型: " + tag);
+            }
+        }
+
+        private double readTime() throws IOException {
+            millis += in.readSignedVarInt();
+            return millis / 1000.0;
+        }
+
+        private int readEntities(RecordVisitor visitor, double t) throws IOException {
+            int count = in.readVarInt();
+            while (entities.size() < count) entities.add(new EntityRecord());
+            for (int i = 0; i < count; i++) {
+                EntityRecord e = entities.get(i);
+                e.id = readId();
+                e.x = in.readSignedVarInt() / scale;
+                e.y = in.readSignedVarInt() / scale;
+                if (inlineAppearance) {
+                    // 版本 1 每行都带外观，转成外观记录交给 visitor
+                    readAppearance(e);
+                    visitor.onAppearance(t, e);
+                }
+            }
+            return count;
+        }
+
+        private String readId() throws IOException {
+            int index = in.readVarInt();
+            if (index == ids.size()) {
+                ids.add(in.readString());
+            } else if (index > ids.size()) {
+                throw new IOException("无效的实体序号: " + index);
+            }
+            return ids.get(index);
+        }
+
+        private void readAppearance(EntityRecord e) throws IOException {
+            int shape = in.readByte();
+            if (shape == EntityRecord.SHAPE_CUSTOM) {
+                e.setCustom();
+            } else {
+                e.shape = shape;
+                e.w = in.readSignedVarInt() / scale;
+                e.h = in.readSignedVarInt() / scale;
+                e.r = in.readByte() / 255f;
+                e.g = in.readByte() / 255f;
+                e.b = in.readByte() / 255f;
+                e.a = in.readByte() / 255f;
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.gameengine.recording;
+
+import com.gameengine.core.WorkerPool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Random access to a file written by BlockCompressedOutputStream. Blocks are
+ * located through the trailing index (or by scanning the frames when the writer
+ * did not close the file) and can be read individually, from any thread.
+ */
+public class BlockCompressedFile implements Closeable {
+    private final FileChannel channel;
+    private long[] offsets = new long[16];
+    private int[] rawLengths = new int[16];
+    private int[] storedLengths = new int[16];
+    // 每块在解压后数据中的起始位置
+    private long[] rawOffsets = new long[16];
+    private int blockCount;
+
+    private BlockCompressedFile(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    // 文件头是否为块压缩格式
+    public static boolean isCompressed(byte[] head, int length) {
+        if (length < BlockCompressedOutputStream.MAGIC.length) return false;
+        for (int i = 0; i < BlockCompressedOutputStream.MAGIC.length; i++) {
+            if (head[i] != BlockCompressedOutputStream.MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    public static BlockCompressedFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        BlockCompressedFile file = new BlockCompressedFile(channel);
+        try {
+            file.loadIndex();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return file;
+    }
+
+    private void loadIndex() throws IOException {
+        long size = channel.size();
+        ByteBuffer head = read(0, BlockCompressedOutputStream.MAGIC.length + 1);
+        byte[] magic = new byte[BlockCompressedOutputStream.MAGIC.length];
+        head.get(magic);
+        if (!isCompressed(magic, magic.length)) throw new IOException("不是块压缩录像文件");
+        int version = head.get();
+        if (version != BlockCompressedOutputStream.VERSION) throw new IOException("不支持的压缩版本: " + version);
+
+        if (size >= head.capacity() + 16 && readIndex(size)) return;
+        // 没有索引（写入未正常结束）：顺序扫描块头，忽略最后不完整的块
+        long position = head.capacity();
+        while (position + BlockCompressedOutputStream.FRAME_HEADER <= size) {
+            ByteBuffer frame = read(position, BlockCompressedOutputStream.FRAME_HEADER);
+            int raw = frame.getInt();
+            int stored = frame.getInt();
+            if (raw <= 0 || stored < 0 || position + BlockCompressedOutputStream.FRAME_HEADER + stored > size) break;
+            addBlock(position, raw, stored);
+            position += BlockCompressedOutputStream.FRAME_HEADER + stored;
+        }
+    }
+
+    private boolean readIndex(long size) throws IOException {
+        ByteBuffer footer = read(size - 12, 12);
+        long indexOffset = footer.getLong();
+        byte[] magic = new byte[4];
+        footer.get(magic);
+        if (!Arrays.equals(magic, BlockCompressedOutputStream.INDEX_MAGIC)) return false;
+        if (indexOffset < 0 || indexOffset + 4 > size - 12) return false;
+        ByteBuffer index = read(indexOffset, (int) (size - 12 - indexOffset));
+        int count = index.getInt();
+        if (index.remaining() != count * 16L) return false;
+        for (int i = 0; i < count; i++) {
+            addBlock(index.getLong(), index.getInt(), index.getInt());
+        }
+        return true;
+    }
+
+    private void addBlock(long offset, int raw, int stored) {
+        if (blockCount == offsets.length) {
+            int n = blockCount * 2;
+            offsets = Arrays.copyOf(offsets, n);
+            rawLengths = Arrays.copyOf(rawLengths, n);
+            storedLengths = Arrays.copyOf(storedLengths, n);
+            rawOffsets = Arrays.copyOf(rawOffsets, n);
+        }
+        rawOffsets[blockCount] = blockCount == 0 ? 0 : rawOffsets[blockCount - 1] + rawLengths[blockCount - 1];
+        offsets[blockCount] = offset;
+        rawLengths[blockCount] = raw;
+        storedLengths[blockCount] = stored;
+        blockCount++;
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new IOException("压缩录像数据意外结束");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    public long getRawLength() {
+        return blockCount == 0 ? 0 : rawOffsets[blockCount - 1] + rawLengths[blockCount - 1];
+    }
+
+    public long getRawOffset(int block) {
+        return rawOffsets[block];
+    }
+
+    // 解压后位置所在的块，用于按块定位
+    public int findBlock(long rawPosition) {
+        int i = Arrays.binarySearch(rawOffsets, 0, blockCount, rawPosition);
+        return i >= 0 ? i : Math.max(0, -i - 2);
+    }
+
+    /**
+     * Reads and inflates one block. Uses positional reads only, so different
+     * blocks can be read concurrently.
+     */
+    public byte[] readBlock(int block) throws IOException {
+        ByteBuffer frame = read(offsets[block], BlockCompressedOutputStream.FRAME_HEADER + storedLengths[block]);
+        frame.position(8);
+        int method = frame.get();
+        byte[] raw = new byte[rawLengths[block]];
+        if (method == BlockCompressedOutputStream.METHOD_STORED) {
+            frame.get(raw);
+            return raw;
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(frame.array(), BlockCompressedOutputStream.FRAME_HEADER, storedLengths[block]);
+            int n = 0;
+            while (n < raw.length && !inflater.finished()) {
+                int r = inflater.inflate(raw, n, raw.length - n);
+                if (r == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                n += r;
+            }
+            if (n != raw.length) throw new IOException("压缩块损坏: " + block);
+        } catch (DataFormatException e) {
+            throw new IOException("压缩块损坏: " + block, e);
+        } finally {
+            inflater.end();
+        }
+        return raw;
+    }
+
+    /**
+     * Streams the inflated content starting at the given block. With a worker pool
+     * the next blocks are inflated in parallel, one window at a time; the stream
+     * owns this file and closes it when closed.
+     */
+    public InputStream newInputStream(int firstBlock, WorkerPool workers) {
+        return new BlockInputStream(firstBlock, workers);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private final class BlockInputStream extends InputStream {
+        private final WorkerPool workers;
+        private final byte[][] window;
+        private int windowStart;
+        private int windowCount;
+        private int windowIndex;
+        private int nextBlock;
+        private byte[] current;
+        private int pos;
+
+        BlockInputStream(int firstBlock, WorkerPool workers) {
+            this.workers = workers;
+            this.window = new byte[workers != null ? workers.getWorkerCount() + 1 : 1][];
+            this.nextBlock = firstBlock;
+        }
+
+        // 当前块读完后切换到下一块，窗口用完时并行解压下一窗口
+        private boolean advance() throws IOException {
+            while (current == null || pos >= current.length) {
+                if (windowIndex >= windowCount) {
+                    if (nextBlock >= blockCount) return false;
+                    fillWindow();
+                }
+                current = window[windowIndex];
+                window[windowIndex++] = null;
+                pos = 0;
+            }
+            return true;
+        }
+
+        private void fillWindow() throws IOException {
+            windowStart = nextBlock;
+            windowCount = Math.min(window.length, blockCount - nextBlock);
+            windowIndex = 0;
+            nextBlock += windowCount;
+            IOException[] failure = new IOException[1];
+            if (workers == null || windowCount == 1) {
+                for (int i = 0; i < windowCount; i++) {
+                    window[i] = readBlock(windowStart + i);
+                }
+                return;
+            }
+            workers.parallelFor(windowCount, i -> {
+                try {
+                    window[i] = readBlock(windowStart + i);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) throw failure[0];
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!advance()) return -1;
+            return current[pos++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            if (!advance()) return -1;
+            int n = Math.min(length, current.length - pos);
+            System.arraycopy(current, pos, buffer, offset, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            BlockCompressedFile.this.close();
+        }
+    }
+}
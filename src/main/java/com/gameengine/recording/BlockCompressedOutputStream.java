@@ -0,0 +1,122 @@
+package com.gameengine.recording;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Deflates the bytes written to it in independent blocks. Each block is framed
+ * with its raw and stored length, and an index of block offsets is appended on
+ * close so that BlockCompressedFile can seek to any block and inflate blocks in
+ * parallel. Compression runs on the thread that calls write().
+ */
+public class BlockCompressedOutputStream extends OutputStream {
+    static final byte[] MAGIC = {'G', 'R', 'B', 'Z'};
+    static final byte[] INDEX_MAGIC = {'G', 'R', 'B', 'I'};
+    static final int VERSION = 1;
+    static final int METHOD_STORED = 0;
+    static final int METHOD_DEFLATE = 1;
+    // 块头：原始长度(int) + 存储长度(int) + 方法(byte)
+    static final int FRAME_HEADER = 9;
+
+    private final DataOutputStream out;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final byte[] block;
+    private byte[] compressed;
+    private int blockSize;
+    private long position;
+    // 每块三项：文件偏移、原始长度、存储长度
+    private long[] index = new long[48];
+    private int blockCount;
+    private boolean closed;
+
+    public BlockCompressedOutputStream(OutputStream out, int blockSize) throws IOException {
+        this.out = new DataOutputStream(out);
+        this.block = new byte[Math.max(1024, blockSize)];
+        this.compressed = new byte[block.length + 64];
+        this.out.write(MAGIC);
+        this.out.writeByte(VERSION);
+        this.position = MAGIC.length + 1;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (blockSize == block.length) flushBlock();
+        block[blockSize++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (blockSize == block.length) flushBlock();
+            int n = Math.min(length, block.length - blockSize);
+            System.arraycopy(data, offset, block, blockSize, n);
+            blockSize += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    // 压缩并写出当前块；每块使用独立的压缩字典，可单独解压
+    private void flushBlock() throws IOException {
+        if (blockSize == 0) return;
+        deflater.reset();
+        deflater.setInput(block, 0, blockSize);
+        deflater.finish();
+        int stored = 0;
+        while (!deflater.finished()) {
+            if (stored == compressed.length) compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            stored += deflater.deflate(compressed, stored, compressed.length - stored);
+        }
+        int method = METHOD_DEFLATE;
+        byte[] payload = compressed;
+        if (stored >= blockSize) {
+            // 不可压缩的数据直接存储
+            method = METHOD_STORED;
+            payload = block;
+            stored = blockSize;
+        }
+        out.writeInt(blockSize);
+        out.writeInt(stored);
+        out.writeByte(method);
+        out.write(payload, 0, stored);
+
+        if ((blockCount + 1) * 3 > index.length) index = Arrays.copyOf(index, index.length * 2);
+        index[blockCount * 3] = position;
+        index[blockCount * 3 + 1] = blockSize;
+        index[blockCount * 3 + 2] = stored;
+        blockCount++;
+        position += FRAME_HEADER + stored;
+        blockSize = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBlock();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            flushBlock();
+            long indexOffset = position;
+            out.writeInt(blockCount);
+            for (int i = 0; i < blockCount; i++) {
+                out.writeLong(index[i * 3]);
+                out.writeInt((int) index[i * 3 + 1]);
+                out.writeInt((int) index[i * 3 + 2]);
+            }
+            out.writeLong(indexOffset);
+            out.write(INDEX_MAGIC);
+            out.flush();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+}
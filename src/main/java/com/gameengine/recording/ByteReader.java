@@ -0,0 +1,61 @@
+package com.gameengine.recording;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the primitives written by ByteWriter from a stream. Callers should pass a
+ * buffered stream; every value is read byte by byte.
+ */
+public class ByteReader {
+    private final InputStream in;
+    private byte[] scratch = new byte[64];
+
+    public ByteReader(InputStream in) {
+        this.in = in;
+    }
+
+    // 文件末尾返回 -1（只用于读取记录标记）
+    public int readTag() throws IOException {
+        return in.read();
+    }
+
+    public int readByte() throws IOException {
+        int b = in.read();
+        if (b < 0) throw new EOFException("录像数据意外结束");
+        return b;
+    }
+
+    public int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("变长整数格式错误");
+    }
+
+    public int readSignedVarInt() throws IOException {
+        int v = readVarInt();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    public String readString() throws IOException {
+        int length = readVarInt();
+        if (length > scratch.length) scratch = new byte[Math.max(length, scratch.length * 2)];
+        readFully(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    public void readFully(byte[] buffer, int offset, int length) throws IOException {
+        while (length > 0) {
+            int n = in.read(buffer, offset, length);
+            if (n < 0) throw new EOFException("录像数据意外结束");
+            offset += n;
+            length -= n;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.gameengine.recording;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends bytes to a FileChannel through one reusable direct buffer, so each
+ * byte is copied once on its way to the page cache. A write that does not fit
+ * is sent together with the pending buffer in a single gathering write instead
+ * of being copied. sync() forces written data to the device; whether close()
+ * does so as well is set by the caller.
+ */
+public class ChannelOutputStream extends OutputStream {
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final ByteBuffer[] gather = new ByteBuffer[2];
+    private final boolean syncOnClose;
+    private boolean dirty; // 上次 force 之后是否写过数据
+    private boolean closed;
+
+    public ChannelOutputStream(Path path, int bufferSize, boolean syncOnClose) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                        StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(Math.max(4096, bufferSize));
+        this.syncOnClose = syncOnClose;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining()) drain();
+        buffer.put((byte) b);
+        dirty = true;
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) throws IOException {
+        if (length <= buffer.remaining()) {
+            buffer.put(data, offset, length);
+        } else if (length < buffer.capacity()) {
+            drain();
+            buffer.put(data, offset, length);
+        } else {
+            // 大块数据不再拷进缓冲区，与缓冲区中的剩余数据一次聚集写出
+            buffer.flip();
+            gather[0] = buffer;
+            gather[1] = ByteBuffer.wrap(data, offset, length);
+            while (gather[1].hasRemaining()) {
+                channel.write(gather);
+            }
+            gather[1] = null;
+            buffer.clear();
+        }
+        dirty = true;
+    }
+
+    // 把缓冲区写入通道（进入页缓存），不强制落盘
+    @Override
+    public void flush() throws IOException {
+        drain();
+    }
+
+    // 把已写入的数据强制写到存储设备
+    public void sync() throws IOException {
+        drain();
+        if (dirty) {
+            channel.force(false);
+            dirty = false;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            drain();
+            if (syncOnClose) sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
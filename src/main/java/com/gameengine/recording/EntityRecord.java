@@ -0,0 +1,71 @@
+package com.gameengine.recording;
+
+/**
+ * State of one entity in a recorded frame. Instances are reused by encoders and
+ * decoders, so consumers must copy the values they keep.
+ */
+public class EntityRecord {
+    // 外观编码：前三个与 RenderComponent.RenderType 的顺序一致
+    public static final int SHAPE_RECTANGLE = 0;
+    public static final int SHAPE_CIRCLE = 1;
+    public static final int SHAPE_LINE = 2;
+    public static final int SHAPE_CUSTOM = 3;
+
+    private static final String[] SHAPE_NAMES = {"RECTANGLE", "CIRCLE", "LINE", "CUSTOM"};
+
+    public String id;
+    public float x;
+    public float y;
+    public int shape = SHAPE_CUSTOM;
+    public float w;
+    public float h;
+    public float r = 0.9f;
+    public float g = 0.9f;
+    public float b = 0.2f;
+    public float a = 1.0f;
+
+    public void set(EntityRecord other) {
+        this.id = other.id;
+        this.x = other.x;
+        this.y = other.y;
+        setAppearance(other);
+    }
+
+    // 只复制外观（形状、尺寸、颜色），不改变 id 与位置
+    public void setAppearance(EntityRecord other) {
+        this.shape = other.shape;
+        this.w = other.w;
+        this.h = other.h;
+        this.r = other.r;
+        this.g = other.g;
+        this.b = other.b;
+        this.a = other.a;
+    }
+
+    // 自定义外观不记录尺寸与颜色，重置为默认值以免复用实例时残留旧值
+    public void setCustom() {
+        shape = SHAPE_CUSTOM;
+        w = 0;
+        h = 0;
+        r = 0.9f;
+        g = 0.9f;
+        b = 0.2f;
+        a = 1.0f;
+    }
+
+    public boolean sameAppearance(EntityRecord other) {
+        return shape == other.shape && w == other.w && h == other.h
+            && r == other.r && g == other.g && b == other.b && a == other.a;
+    }
+
+    public static String shapeName(int shape) {
+        return shape >= 0 && shape < SHAPE_NAMES.length ? SHAPE_NAMES[shape] : "CUSTOM";
+    }
+
+    public static int shapeCode(String name) {
+        for (int i = 0; i < SHAPE_NAMES.length; i++) {
+            if (SHAPE_NAMES[i].equals(name)) return i;
+        }
+        return SHAPE_CUSTOM;
+    }
+}
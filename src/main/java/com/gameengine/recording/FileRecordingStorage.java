@@ -1,5 +1,7 @@
 package com.gameengine.recording;
 
+import com.gameengine.core.WorkerPool;
+
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -9,52 +11,84 @@ import java.util.Arrays;
 import java.util.List;
 
 public class FileRecordingStorage implements RecordingStorage {
-    private BufferedWriter writer;
+    private final int compressionBlockSize;
+    private WorkerPool workers;
+    private boolean syncOnClose = true;
+    private OutputStream out;
+    private ChannelOutputStream file;
+
+    public FileRecordingStorage() {
+        this(0);
+    }
+
+    // compressionBlockSize > 0 时以独立压缩块写入，读取时自动识别
+    public FileRecordingStorage(int compressionBlockSize) {
+        this.compressionBlockSize = compressionBlockSize;
+    }
+
+    // 读取压缩录像时用于并行解压，为 null 时在读取线程上顺序解压
+    public void setWorkerPool(WorkerPool workers) {
+        this.workers = workers;
+    }
+
+    // 关闭写入端时是否强制落盘，在 openWriter 之前设置
+    public void setSyncOnClose(boolean syncOnClose) {
+        this.syncOnClose = syncOnClose;
+    }
 
     @Override
     public void openWriter(String path) throws IOException {
         Path p = Paths.get(path);
         if (p.getParent() != null) Files.createDirectories(p.getParent());
-        writer = Files.newBufferedWriter(p);
+        file = new ChannelOutputStream(p, 1 << 16, syncOnClose);
+        out = compressionBlockSize > 0 ? new BlockCompressedOutputStream(file, compressionBlockSize) : file;
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) throws IOException {
+        if (out == null) throw new IllegalStateException("writer not opened");
+        out.write(data, offset, length);
     }
 
     @Override
-    public void writeLine(String line) throws IOException {
-        if (writer == null) throw new IllegalStateException("writer not opened");
-        writer.write(line);
-        writer.newLine();
+    public void sync() throws IOException {
+        if (out == null) throw new IllegalStateException("writer not opened");
+        // 压缩时先把未满的块作为一个较短的块写出
+        out.flush();
+        file.sync();
     }
 
     @Override
     public void closeWriter() {
-        if (writer != null) {
-            try { writer.flush(); } catch (Exception ignored) {}
-            try { writer.close(); } catch (Exception ignored) {}
-            writer = null;
+        if (out != null) {
+            try { out.flush(); } catch (Exception ignored) {}
+            try { out.close(); } catch (Exception ignored) {}
+            out = null;
+            file = null;
         }
     }
 
     @Override
-    public Iterable<String> readLines(String path) throws IOException {
-        List<String> lines = new ArrayList<>();
-        try (BufferedReader br = Files.newBufferedReader(Paths.get(path))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                lines.add(line);
-            }
+    public InputStream openReader(String path) throws IOException {
+        Path p = Paths.get(path);
+        byte[] head = new byte[4];
+        int length;
+        try (InputStream in = Files.newInputStream(p)) {
+            length = in.readNBytes(head, 0, head.length);
+        }
+        if (BlockCompressedFile.isCompressed(head, length)) {
+            return new BufferedInputStream(BlockCompressedFile.open(p).newInputStream(0, workers), 1 << 16);
         }
-        return lines;
+        return new BufferedInputStream(Files.newInputStream(p), 1 << 16);
     }
 
     @Override
     public List<File> listRecordings() {
         File dir = new File("recordings");
         if (!dir.exists() || !dir.isDirectory()) return new ArrayList<>();
-        File[] files = dir.listFiles((d, name) -> name.endsWith(".json") || name.endsWith(".jsonl"));
+        File[] files = dir.listFiles((d, name) -> RecordingCodecs.isRecordingFile(name));
         if (files == null) return new ArrayList<>();
         Arrays.sort(files, (a,b) -> Long.compare(b.lastModified(), a.lastModified()));
         return new ArrayList<>(Arrays.asList(files));
     }
 }
-
-
@@ -0,0 +1,95 @@
+package com.gameengine.recording;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Visitor that applies delta records on top of the last keyframe and reports
+ * every keyframe or delta as a complete frame through onFrame(). Appearance
+ * records are kept in a per-entity table and copied into the frame entities,
+ * whose rows only carry positions. Consumers that want whole snapshots extend
+ * this instead of handling deltas themselves.
+ */
+public abstract class FrameReconstructor implements RecordVisitor {
+    private final Map<String, EntityRecord> state = new LinkedHashMap<>();
+    // 每个实体最近一次的外观记录；实体移除后丢弃，写入端在其重新出现时会再写一条外观记录
+    private final Map<String, EntityRecord> appearances = new HashMap<>();
+    private final ArrayDeque<EntityRecord> free = new ArrayDeque<>();
+    private final List<EntityRecord> frame = new ArrayList<>();
+
+    // entities 为该时刻的完整实体状态，只在回调期间有效
+    protected abstract void onFrame(double t, List<EntityRecord> entities);
+
+    @Override
+    public void onHeader(int width, int height) {
+    }
+
+    @Override
+    public void onInput(double t, int[] keys) {
+    }
+
+    @Override
+    public final void onAppearance(double t, EntityRecord entity) {
+        EntityRecord appearance = appearances.get(entity.id);
+        if (appearance == null) {
+            appearance = new EntityRecord();
+            appearance.id = entity.id;
+            appearances.put(entity.id, appearance);
+        }
+        appearance.setAppearance(entity);
+        EntityRecord current = state.get(entity.id);
+        if (current != null) current.setAppearance(entity);
+    }
+
+    @Override
+    public final void onKeyframe(double t, List<EntityRecord> entities) {
+        free.addAll(state.values());
+        state.clear();
+        for (int i = 0; i < entities.size(); i++) {
+            apply(entities.get(i));
+        }
+        appearances.keySet().retainAll(state.keySet());
+        emit(t);
+    }
+
+    @Override
+    public final void onDelta(double t, List<EntityRecord> changed, List<String> removed) {
+        for (int i = 0; i < removed.size(); i++) {
+            String id = removed.get(i);
+            EntityRecord e = state.remove(id);
+            if (e != null) free.add(e);
+            appearances.remove(id);
+        }
+        for (int i = 0; i < changed.size(); i++) {
+            apply(changed.get(i));
+        }
+        emit(t);
+    }
+
+    private void apply(EntityRecord e) {
+        EntityRecord current = state.get(e.id);
+        if (current == null) {
+            current = free.isEmpty() ? new EntityRecord() : free.poll();
+            state.put(e.id, current);
+        }
+        current.id = e.id;
+        current.x = e.x;
+        current.y = e.y;
+        EntityRecord appearance = appearances.get(e.id);
+        if (appearance != null) {
+            current.setAppearance(appearance);
+        } else {
+            current.setCustom();
+        }
+    }
+
+    private void emit(double t) {
+        frame.clear();
+        frame.addAll(state.values());
+        onFrame(t, frame);
+    }
+}
@@ -0,0 +1,256 @@
+package com.gameengine.recording;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The original line-per-record JSON format. Kept for compatibility with existing
+ * recordings and for debugging; the binary codec is the default for new files.
+ * Appearance is written in separate "appearance" lines; rows of older files that
+ * still carry rt/w/h/color are reported as appearance records as well.
+ */
+public class JsonlRecordingCodec implements RecordingCodec {
+    public static final String NAME = "jsonl";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getFileExtension() {
+        return ".jsonl";
+    }
+
+    @Override
+    public boolean matches(byte[] head, int length) {
+        for (int i = 0; i < length; i++) {
+            byte c = head[i];
+            if (c == ' ' || c == '\t' || c == '\r' || c == '\n') continue;
+            return c == '{';
+        }
+        return false;
+    }
+
+    @Override
+    public RecordingCodec.Encoder newEncoder(RecordingConfig config) {
+        return new Encoder(config.quantizeDecimals);
+    }
+
+    @Override
+    public RecordingCodec.Decoder newDecoder(InputStream in) {
+        return new Decoder(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+    }
+
+    private static final class Encoder implements RecordingCodec.Encoder {
+        private final DecimalFormat qfmt;
+        private final StringBuilder sb = new StringBuilder(1024);
+
+        Encoder(int decimals) {
+            qfmt = new DecimalFormat();
+            qfmt.setMaximumFractionDigits(Math.max(0, decimals));
+            qfmt.setGroupingUsed(false);
+        }
+
+        @Override
+        public void writeHeader(ByteWriter out, int width, int height) {
+            sb.setLength(0);
+            sb.append("{\"type\":\"header\",\"version\":2,\"w\":").append(width).append(",\"h\":").append(height).append('}');
+            flushLine(out);
+        }
+
+        @Override
+        public void writeAppearance(ByteWriter out, double t, EntityRecord e) {
+            sb.setLength(0);
+            sb.append("{\"type\":\"appearance\",\"t\":").append(qfmt.format(t))
+              .append(",\"id\":\"").append(e.id).append("\",")
+              .append("\"rt\":\"").append(EntityRecord.shapeName(e.shape)).append('"');
+            if (e.shape != EntityRecord.SHAPE_CUSTOM) {
+                sb.append(",\"w\":").append(qfmt.format(e.w))
+                  .append(",\"h\":").append(qfmt.format(e.h))
+                  .append(",\"color\":[")
+                  .append(qfmt.format(e.r)).append(',')
+                  .append(qfmt.format(e.g)).append(',')
+                  .append(qfmt.format(e.b)).append(',')
+                  .append(qfmt.format(e.a)).append(']');
+            }
+            sb.append('}');
+            flushLine(out);
+        }
+
+        @Override
+        public void writeKeyframe(ByteWriter out, double t, List<EntityRecord> entities, int count) {
+            sb.setLength(0);
+            sb.append("{\"type\":\"keyframe\",\"t\":").append(qfmt.format(t)).append(",\"entities\":[");
+            appendEntities(entities, count);
+            sb.append("]}");
+            flushLine(out);
+        }
+
+        @Override
+        public void writeDelta(ByteWriter out, double t, List<EntityRecord> changed, List<String> removed) {
+            sb.setLength(0);
+            sb.append("{\"type\":\"delta\",\"t\":").append(qfmt.format(t)).append(",\"entities\":[");
+            appendEntities(changed, changed.size());
+            sb.append("],\"removed\":[");
+            for (int i = 0; i < removed.size(); i++) {
+                if (i > 0) sb.append(',');
+                sb.append('"').append(removed.get(i)).append('"');
+            }
+            sb.append("]}");
+            flushLine(out);
+        }
+
+        private void appendEntities(List<EntityRecord> entities, int count) {
+            for (int i = 0; i < count; i++) {
+                EntityRecord e = entities.get(i);
+                if (i > 0) sb.append(',');
+                sb.append("{\"id\":\"").append(e.id).append("\",")
+                  .append("\"x\":").append(qfmt.format(e.x)).append(',')
+                  .append("\"y\":").append(qfmt.format(e.y)).append('}');
+            }
+        }
+
+        @Override
+        public void writeInput(ByteWriter out, double t, int[] keys, int count) {
+            sb.setLength(0);
+            sb.append("{\"type\":\"input\",\"t\":").append(qfmt.format(t)).append(",\"keys\":[");
+            for (int i = 0; i < count; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(keys[i]);
+            }
+            sb.append("]}");
+            flushLine(out);
+        }
+
+        private void flushLine(ByteWriter out) {
+            sb.append('\n');
+            out.writeBytes(sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static final class Decoder implements RecordingCodec.Decoder {
+        private final BufferedReader reader;
+        private final List<EntityRecord> entities = new ArrayList<>();
+        private final List<String> removed = new ArrayList<>();
+
+        Decoder(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean next(RecordVisitor visitor) throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.contains("\"type\":\"header\"")) {
+                    // 旧版本写入 w/h，部分工具写入 width/height
+                    String w = RecordingJson.field(line, "width");
+                    String h = RecordingJson.field(line, "height");
+                    if (w == null) w = RecordingJson.field(line, "w");
+                    if (h == null) h = RecordingJson.field(line, "h");
+                    visitor.onHeader((int) RecordingJson.parseDouble(w), (int) RecordingJson.parseDouble(h));
+                    return true;
+                }
+                if (line.contains("\"type\":\"appearance\"")) {
+                    double t = RecordingJson.parseDouble(RecordingJson.field(line, "t"));
+                    if (entities.isEmpty()) entities.add(new EntityRecord());
+                    EntityRecord e = entities.get(0);
+                    e.id = RecordingJson.stripQuotes(RecordingJson.field(line, "id"));
+                    parseAppearance(line, e);
+                    visitor.onAppearance(t, e);
+                    return true;
+                }
+                if (line.contains("\"type\":\"keyframe\"")) {
+                    double t = RecordingJson.parseDouble(RecordingJson.field(line, "t"));
+                    int count = parseEntities(line, visitor, t);
+                    visitor.onKeyframe(t, entities.subList(0, count));
+                    return true;
+                }
+                if (line.contains("\"type\":\"delta\"")) {
+                    double t = RecordingJson.parseDouble(RecordingJson.field(line, "t"));
+                    int count = parseEntities(line, visitor, t);
+                    parseRemoved(line);
+                    visitor.onDelta(t, entities.subList(0, count), removed);
+                    return true;
+                }
+                if (line.contains("\"type\":\"input\"")) {
+                    double t = RecordingJson.parseDouble(RecordingJson.field(line, "t"));
+                    visitor.onInput(t, parseKeys(line));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int parseEntities(String line, RecordVisitor visitor, double t) {
+            int idx = line.indexOf("\"entities\":[");
+            if (idx < 0) return 0;
+            String arr = RecordingJson.extractArray(line, line.indexOf('[', idx));
+            String[] parts = RecordingJson.splitTopLevel(arr);
+            while (entities.size() < parts.length) entities.add(new EntityRecord());
+            for (int i = 0; i < parts.length; i++) {
+                String p = parts[i];
+                EntityRecord e = entities.get(i);
+                e.id = RecordingJson.stripQuotes(RecordingJson.field(p, "id"));
+                e.x = (float) RecordingJson.parseDouble(RecordingJson.field(p, "x"));
+                e.y = (float) RecordingJson.parseDouble(RecordingJson.field(p, "y"));
+                // 旧文件的每行都带外观
+                if (p.contains("\"rt\"")) {
+                    parseAppearance(p, e);
+                    visitor.onAppearance(t, e);
+                }
+            }
+            return parts.length;
+        }
+
+        private void parseAppearance(String p, EntityRecord e) {
+            e.setCustom();
+            e.shape = EntityRecord.shapeCode(RecordingJson.stripQuotes(RecordingJson.field(p, "rt")));
+            if (e.shape == EntityRecord.SHAPE_CUSTOM) return;
+            e.w = (float) RecordingJson.parseDouble(RecordingJson.field(p, "w"));
+            e.h = (float) RecordingJson.parseDouble(RecordingJson.field(p, "h"));
+            int c = p.indexOf("\"color\":[");
+            if (c >= 0) {
+                String[] cs = RecordingJson.extractArray(p, p.indexOf('[', c)).split(",");
+                if (cs.length >= 3) {
+                    try {
+                        e.r = Float.parseFloat(cs[0].trim());
+                        e.g = Float.parseFloat(cs[1].trim());
+                        e.b = Float.parseFloat(cs[2].trim());
+                        if (cs.length >= 4) e.a = Float.parseFloat(cs[3].trim());
+                    } catch (NumberFormatException ignored) {}
+                }
+            }
+        }
+
+        private void parseRemoved(String line) {
+            removed.clear();
+            int idx = line.indexOf("\"removed\":[");
+            if (idx < 0) return;
+            String arr = RecordingJson.extractArray(line, line.indexOf('[', idx)).trim();
+            if (arr.isEmpty()) return;
+            for (String id : arr.split(",")) {
+                removed.add(RecordingJson.stripQuotes(id));
+            }
+        }
+
+        private int[] parseKeys(String line) {
+            int idx = line.indexOf("\"keys\":[");
+            if (idx < 0) return new int[0];
+            String arr = RecordingJson.extractArray(line, line.indexOf('[', idx)).trim();
+            if (arr.isEmpty()) return new int[0];
+            String[] parts = arr.split(",");
+            int[] keys = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                try { keys[i] = Integer.parseInt(parts[i].trim()); } catch (NumberFormatException ignored) {}
+            }
+            return keys;
+        }
+    }
+}
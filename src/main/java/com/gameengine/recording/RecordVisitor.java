@@ -0,0 +1,21 @@
+package com.gameengine.recording;
+
+import java.util.List;
+
+/**
+ * Receives the records of a recording in file order, independent of the codec
+ * that stored them. List and array arguments are only valid during the call.
+ */
+public interface RecordVisitor {
+    void onHeader(int width, int height);
+
+    // 实体首次出现（spawn）或外观变化时的外观记录；之后的关键帧与增量帧只带 id 和位置
+    void onAppearance(double t, EntityRecord entity);
+
+    void onKeyframe(double t, List<EntityRecord> entities);
+
+    // changed 中的实体为新出现或状态变化的实体，未列出的实体保持不变
+    void onDelta(double t, List<EntityRecord> changed, List<String> removed);
+
+    void onInput(double t, int[] keys);
+}
@@ -0,0 +1,48 @@
+package com.gameengine.recording;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * A recording file format. Codecs are registered in RecordingCodecs; writers pick
+ * one by name (RecordingConfig.codec) and readers pick the one whose matches()
+ * accepts the first bytes of the file.
+ */
+public interface RecordingCodec {
+    String getName();
+
+    String getFileExtension();
+
+    // 根据文件开头的若干字节判断是否为本格式
+    boolean matches(byte[] head, int length);
+
+    Encoder newEncoder(RecordingConfig config);
+
+    Decoder newDecoder(InputStream in) throws IOException;
+
+    /**
+     * Appends encoded records to a ByteWriter. Encoders may keep state between
+     * calls (interned ids, previous timestamps), so one instance serves one file
+     * and records must be encoded in file order.
+     */
+    interface Encoder {
+        // 文件中的第一条记录，包含格式标识
+        void writeHeader(ByteWriter out, int width, int height);
+
+        // 形状、尺寸与颜色，只在实体首次出现或外观变化时写出
+        void writeAppearance(ByteWriter out, double t, EntityRecord entity);
+
+        void writeKeyframe(ByteWriter out, double t, List<EntityRecord> entities, int count);
+
+        // 增量帧：相对上一次写入的状态发生变化的实体，以及被移除实体的 id
+        void writeDelta(ByteWriter out, double t, List<EntityRecord> changed, List<String> removed);
+
+        void writeInput(ByteWriter out, double t, int[] keys, int count);
+    }
+
+    interface Decoder {
+        // 读取并分发下一条记录，到达文件末尾时返回 false
+        boolean next(RecordVisitor visitor) throws IOException;
+    }
+}
@@ -0,0 +1,74 @@
+package com.gameengine.recording;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Registry of recording codecs. The binary and JSONL codecs are built in; others
+ * can be added with register(). Readers detect the format from the file header,
+ * so old JSONL recordings keep working after the default changes.
+ */
+public final class RecordingCodecs {
+    private static final int DETECT_BYTES = 16;
+    private static final Map<String, RecordingCodec> CODECS = new LinkedHashMap<>();
+
+    static {
+        register(new BinaryRecordingCodec());
+        register(new JsonlRecordingCodec());
+    }
+
+    private RecordingCodecs() {}
+
+    public static synchronized void register(RecordingCodec codec) {
+        CODECS.put(codec.getName(), codec);
+    }
+
+    public static synchronized RecordingCodec forName(String name) {
+        RecordingCodec codec = CODECS.get(name);
+        if (codec == null) throw new IllegalArgumentException("未知的录像格式: " + name);
+        return codec;
+    }
+
+    public static synchronized RecordingCodec detect(byte[] head, int length) {
+        for (RecordingCodec codec : CODECS.values()) {
+            if (codec.matches(head, length)) return codec;
+        }
+        return null;
+    }
+
+    // 所有已注册格式的扩展名，用于列出录像文件
+    public static synchronized boolean isRecordingFile(String name) {
+        if (name.endsWith(".json")) return true;
+        for (RecordingCodec codec : CODECS.values()) {
+            if (name.endsWith(codec.getFileExtension())) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Detects the codec from the first bytes of the stream and feeds every record
+     * to the visitor. The stream is closed when done.
+     */
+    public static void read(InputStream in, RecordVisitor visitor) throws IOException {
+        try (InputStream buffered = in instanceof BufferedInputStream ? in : new BufferedInputStream(in, 1 << 16)) {
+            buffered.mark(DETECT_BYTES);
+            byte[] head = new byte[DETECT_BYTES];
+            int length = 0;
+            while (length < head.length) {
+                int n = buffered.read(head, length, head.length - length);
+                if (n < 0) break;
+                length += n;
+            }
+            buffered.reset();
+            RecordingCodec codec = detect(head, length);
+            if (codec == null) throw new IOException("无法识别的录像格式");
+            RecordingCodec.Decoder decoder = codec.newDecoder(buffered);
+            while (decoder.next(visitor)) {
+                // 逐条分发
+            }
+        }
+    }
+}
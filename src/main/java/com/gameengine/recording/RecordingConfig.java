@@ -1,16 +1,34 @@
 package com.gameengine.recording;
 
 public class RecordingConfig {
+    // 写入队列已满时的处理方式
+    public enum OverflowPolicy {
+        BLOCK,       // 游戏线程等待写线程
+        DROP_DELTAS, // 丢弃增量帧与输入，保留关键帧，之后用关键帧重新同步
+        COALESCE     // 跳过本次采样，变化合并进下一条增量帧
+    }
+
+    // 何时把已写入的数据强制写到存储设备（FileChannel.force）
+    public enum SyncPolicy {
+        NONE,     // 交给操作系统回写
+        ON_CLOSE, // 关闭文件前强制一次
+        PERIODIC  // 每隔 syncIntervalMs 强制一次，崩溃时最多丢失这段时间的数据
+    }
+
     public String outputPath;
+    public String codec = BinaryRecordingCodec.NAME; // 见 RecordingCodecs
     public float keyframeIntervalSec = 0.5f;
     public int sampleFps = 30;
     public float positionThreshold = 0.5f; // pixels
     public int quantizeDecimals = 2;
-    public int queueCapacity = 2048;
+    public int queueCapacity = 2048; // frames
+    public int ringEntityCapacity = 1 << 16; // entity slots shared by queued frames
+    public OverflowPolicy overflowPolicy = OverflowPolicy.COALESCE;
+    public int compressionBlockSize = 64 * 1024; // bytes, 0 = uncompressed
+    public SyncPolicy syncPolicy = SyncPolicy.ON_CLOSE;
+    public int syncIntervalMs = 1000;
 
     public RecordingConfig(String outputPath) {
         this.outputPath = outputPath;
     }
 }
-
-
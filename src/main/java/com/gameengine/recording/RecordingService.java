@@ -1,40 +1,96 @@
 package com.gameengine.recording;
 
+import com.gameengine.components.RenderComponent;
 import com.gameengine.components.TransformComponent;
+import com.gameengine.core.EngineMetrics;
 import com.gameengine.core.GameObject;
 import com.gameengine.input.InputManager;
 import com.gameengine.scene.Scene;
 
 import java.io.IOException;
-import java.text.DecimalFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 public class RecordingService {
+    // 写线程每攒够这么多字节就交给存储层，缓冲为空时也会立即写出
+    private static final int WRITE_BATCH_BYTES = 64 * 1024;
+
     private final RecordingConfig config;
-    private final BlockingQueue<String> lineQueue;
+    private final SnapshotRing ring;
     private volatile boolean recording;
     private Thread writerThread;
-    private RecordingStorage storage = new FileRecordingStorage();
+    private RecordingStorage storage;
+    private final RecordingCodec codec;
+
+    // ---- 游戏线程状态：只做采样计时和原始数据拷贝 ----
     private double elapsed;
     private double keyframeElapsed;
     private double sampleAccumulator;
     private final double warmupSec = 0.1; // 等待一帧让场景对象完成初始化
-    private final DecimalFormat qfmt;
+    private boolean keyframeSent;
+    private boolean forceKeyframe; // 丢弃增量帧后用完整关键帧重新同步
+    private int[] keyBuffer = new int[16];
+    private int pendingKeys; // COALESCE 策略下尚未写出的按键
     private Scene lastScene;
+    // 场景对象集合不变时复用组件查找结果
+    private Scene capturedScene;
+    private int capturedVersion;
+    private int captureCount;
+    private GameObject[] captureObjects = new GameObject[64];
+    private String[] captureIds = new String[64];
+    private TransformComponent[] captureTransforms = new TransformComponent[64];
+    private RenderComponent[] captureRenders = new RenderComponent[64];
+
+    // ---- 写线程状态：差分与编码 ----
+    private RecordingCodec.Encoder encoder;
+    private long lastSyncNanos;
+    private final ByteWriter buffer = new ByteWriter(WRITE_BATCH_BYTES + 4096);
+    private final List<EntityRecord> records = new ArrayList<>();
+    private int[] writerKeys = new int[16];
+    // 最近一次写入文件的实体状态，增量帧相对它比较
+    private final Map<String, EntityRecord> written = new HashMap<>();
+    private final ArrayDeque<EntityRecord> freeRecords = new ArrayDeque<>();
+    private final List<EntityRecord> changed = new ArrayList<>();
+    private final List<EntityRecord> restyled = new ArrayList<>(); // 新出现或外观变化，需要写外观记录
+    private final List<String> removed = new ArrayList<>();
+    private final Set<String> seen = new HashSet<>();
+    private boolean hasKeyframe;
+    private boolean keyframePending; // 到期的关键帧因状态未变化而推迟
+    private double idleSince = -1; // 状态未变化、被跳过的最近一次采样时间
+
+    // 计数器：游戏线程写、其他线程读
+    private volatile long droppedRecords;
+    private volatile long coalescedRecords;
+    private volatile long blockedNanos;
+    private volatile int maxLag;
+    // 计数器：写线程写、其他线程读
+    private volatile long writtenBytes;
+    private volatile long writeBatches;
+    private volatile boolean writeFailed;
 
     public RecordingService(RecordingConfig config) {
         this.config = config;
-        this.lineQueue = new ArrayBlockingQueue<>(config.queueCapacity);
+        this.ring = new SnapshotRing(config.queueCapacity, config.ringEntityCapacity);
         this.recording = false;
         this.elapsed = 0.0;
         this.keyframeElapsed = 0.0;
         this.sampleAccumulator = 0.0;
-        this.qfmt = new DecimalFormat();
-        this.qfmt.setMaximumFractionDigits(Math.max(0, config.quantizeDecimals));
-        this.qfmt.setGroupingUsed(false);
+        this.codec = RecordingCodecs.forName(config.codec);
+        FileRecordingStorage files = new FileRecordingStorage(config.compressionBlockSize);
+        files.setSyncOnClose(config.syncPolicy != RecordingConfig.SyncPolicy.NONE);
+        this.storage = files;
+    }
+
+    public RecordingCodec getCodec() {
+        return codec;
     }
 
     public boolean isRecording() {
@@ -44,39 +100,33 @@ public class RecordingService {
     public void start(Scene scene, int width, int height) throws IOException {
         if (recording) return;
         storage.openWriter(config.outputPath);
-        writerThread = new Thread(() -> {
-            try {
-                while (recording || !lineQueue.isEmpty()) {
-                    String s = lineQueue.poll();
-                    if (s == null) {
-                        try { Thread.sleep(1); } catch (InterruptedException ignored) {}
-                        continue;
-                    }
-                    storage.writeLine(s);
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
-            } finally {
-                try { storage.closeWriter(); } catch (Exception ignored) {}
-            }
-        }, "record-writer");
+        encoder = codec.newEncoder(config);
+        // header：写线程启动前直接写出，之后编码器只由写线程使用
+        encoder.writeHeader(buffer, width, height);
+        storage.write(buffer.array(), 0, buffer.size());
+        buffer.reset();
+        keyframeElapsed = 0.0;
+
+        writerThread = new Thread(this::drainRing, "record-writer");
         recording = true;
         writerThread.start();
-
-        // header
-        enqueue("{\"type\":\"header\",\"version\":1,\"w\":" + width + ",\"h\":" + height + "}");
-        keyframeElapsed = 0.0;
     }
 
     public void stop() {
         if (!recording) return;
         try {
             if (lastScene != null) {
-                writeKeyframe(lastScene);
+                capture(lastScene, SnapshotRing.KIND_FINAL);
             }
         } catch (Exception ignored) {}
         recording = false;
-        try { writerThread.join(500); } catch (InterruptedException ignored) {}
+        waitForRoom(0);
+        ring.publish(SnapshotRing.KIND_END, elapsed, 0);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     public void update(double deltaTime, Scene scene, InputManager input) {
@@ -87,93 +137,322 @@ public class RecordingService {
         lastScene = scene;
 
         // input events (sample at native frequency, but只写有justPressed)
-        Set<Integer> just = input.getJustPressedKeysSnapshot();
-        if (!just.isEmpty()) {
-            StringBuilder sb = new StringBuilder();
-            sb.append("{\"type\":\"input\",\"t\":").append(qfmt.format(elapsed)).append(",\"keys\":[");
-            boolean first = true;
-            for (Integer k : just) {
-                if (!first) sb.append(',');
-                sb.append(k);
-                first = false;
+        if (input.isAnyKeyJustPressed()) {
+            int just = input.getJustPressedKeyCount();
+            if (keyBuffer.length < pendingKeys + just) {
+                keyBuffer = Arrays.copyOf(keyBuffer, pendingKeys + just);
             }
-            sb.append("]}");
-            enqueue(sb.toString());
+            pendingKeys += input.copyJustPressedKeys(keyBuffer, pendingKeys);
+        }
+        if (pendingKeys > 0 && admit(pendingKeys, false)) {
+            for (int i = 0; i < pendingKeys; i++) {
+                ring.putKey(i, keyBuffer[i]);
+            }
+            publish(SnapshotRing.KIND_INPUT, pendingKeys);
+            pendingKeys = 0;
+        } else if (config.overflowPolicy != RecordingConfig.OverflowPolicy.COALESCE) {
+            pendingKeys = 0;
         }
 
-        // sampled deltas placeholder（可扩展）：此处先跳过，保持最小版本
+        // 按 sampleFps 采样；是否到了关键帧间隔在这里决定，差分与编码在写线程完成
+        double sampleInterval = 1.0 / Math.max(1, config.sampleFps);
+        if (elapsed < warmupSec || sampleAccumulator < sampleInterval) return;
+        sampleAccumulator %= sampleInterval;
+        boolean keyframe = !keyframeSent || forceKeyframe || keyframeElapsed >= config.keyframeIntervalSec;
+        capture(scene, keyframe ? SnapshotRing.KIND_KEYFRAME : SnapshotRing.KIND_SAMPLE);
+    }
 
-        // periodic keyframe
-        // Optimization: Record every frame (or at least 100fps) to capture fast moving projectiles
-        // Ignoring config.keyframeIntervalSec to ensure high fidelity as requested
-        // 优化说明：为了捕捉快速移动的物体（如子弹），我们忽略配置中的间隔，
-        // 强制以高频率（约10ms一次，即100FPS）记录关键帧。
-        // 这样可以保证回放时的流畅度和碰撞判定的视觉准确性。
-        if (elapsed >= warmupSec && keyframeElapsed >= 0.010) { 
-            if (writeKeyframe(scene)) {
-                keyframeElapsed = 0.0;
+    // 游戏线程上的全部录制开销：把位置与外观的原始值拷进环形缓冲
+    private void capture(Scene scene, int kind) {
+        refreshCaptureList(scene);
+        int count = captureCount;
+        if (count == 0) return;
+        if (count > ring.entityCapacity()) {
+            droppedRecords++;
+            return;
+        }
+        boolean keyframe = kind != SnapshotRing.KIND_SAMPLE;
+        if (kind == SnapshotRing.KIND_FINAL) {
+            waitForRoom(count);
+        } else if (!admit(count, keyframe)) {
+            // 丢弃的增量帧无法由后续增量帧补回，下一次采样写完整关键帧重新同步
+            if (config.overflowPolicy == RecordingConfig.OverflowPolicy.DROP_DELTAS) forceKeyframe = true;
+            return;
+        }
+        int captured = 0;
+        for (int i = 0; i < count; i++) {
+            // 本帧内被销毁的对象要到下一次 Scene.update 才移出列表，组件已被清空
+            if (!captureObjects[i].isActive()) continue;
+            TransformComponent tc = captureTransforms[i];
+            ring.putEntity(captured, captureIds[i], tc.getX(), tc.getY());
+            RenderComponent rc = captureRenders[i];
+            if (rc != null) {
+                RenderComponent.Color col = rc.getColor();
+                ring.putAppearance(captured, rc.getRenderType().ordinal(), rc.getWidth(), rc.getHeight(),
+                                   col.r, col.g, col.b, col.a);
             }
+            captured++;
+        }
+        publish(kind, captured);
+        if (keyframe) {
+            keyframeSent = true;
+            forceKeyframe = false;
+            keyframeElapsed = 0.0;
         }
     }
 
-    private boolean writeKeyframe(Scene scene) {
-        // 构建JSON字符串
-        // 格式: {"type":"keyframe", "t":时间戳, "entities":[...]}
-        StringBuilder sb = new StringBuilder();
-        sb.append("{\"type\":\"keyframe\",\"t\":").append(qfmt.format(elapsed)).append(",\"entities\":[");
-        List<GameObject> objs = scene.getGameObjects();
-        boolean first = true;
-        int count = 0;
-        for (GameObject obj : objs) {
+    // 仅在场景或其对象集合变化时重新查找组件
+    private void refreshCaptureList(Scene scene) {
+        int version = scene.getStructureVersion();
+        if (scene == capturedScene && version == capturedVersion) return;
+        capturedScene = scene;
+        capturedVersion = version;
+        captureCount = 0;
+        for (GameObject obj : scene.getGameObjects()) {
             // 获取位置组件，如果没有位置则跳过
             TransformComponent tc = obj.getComponent(TransformComponent.class);
             if (tc == null) continue;
-            float x = tc.getPosition().x;
-            float y = tc.getPosition().y;
-            if (!first) sb.append(',');
-            // 记录基础属性：ID, X, Y
-            sb.append('{')
-              .append("\"id\":\"").append(obj.getName()).append("\",")
-              .append("\"x\":").append(qfmt.format(x)).append(',')
-              .append("\"y\":").append(qfmt.format(y));
-
-            // 可选渲染信息（若对象带有 RenderComponent，则记录形状、尺寸、颜色）
-            // 这允许回放系统重建未知的实体外观
-            com.gameengine.components.RenderComponent rc = obj.getComponent(com.gameengine.components.RenderComponent.class);
-            if (rc != null) {
-                com.gameengine.components.RenderComponent.RenderType rt = rc.getRenderType();
-                com.gameengine.math.Vector2 sz = rc.getSize();
-                com.gameengine.components.RenderComponent.Color col = rc.getColor();
-                sb.append(',')
-                  .append("\"rt\":\"").append(rt.name()).append("\",")
-                  .append("\"w\":").append(qfmt.format(sz.x)).append(',')
-                  .append("\"h\":").append(qfmt.format(sz.y)).append(',')
-                  .append("\"color\":[")
-                  .append(qfmt.format(col.r)).append(',')
-                  .append(qfmt.format(col.g)).append(',')
-                  .append(qfmt.format(col.b)).append(',')
-                  .append(qfmt.format(col.a)).append(']');
-            } else {
-                // 标记自定义渲染（如 Player），方便回放做近似还原
-                // 这种对象在 ReplayScene 中需要特殊处理
-                sb.append(',').append("\"rt\":\"CUSTOM\"");
+            if (captureCount == captureIds.length) {
+                int n = captureCount * 2;
+                captureObjects = Arrays.copyOf(captureObjects, n);
+                captureIds = Arrays.copyOf(captureIds, n);
+                captureTransforms = Arrays.copyOf(captureTransforms, n);
+                captureRenders = Arrays.copyOf(captureRenders, n);
             }
+            captureObjects[captureCount] = obj;
+            captureIds[captureCount] = obj.getName();
+            captureTransforms[captureCount] = tc;
+            // 可选渲染信息：形状、尺寸、颜色；没有 RenderComponent 的对象（如 Player）记为自定义外观
+            captureRenders[captureCount] = obj.getComponent(RenderComponent.class);
+            captureCount++;
+        }
+    }
 
-            sb.append('}');
-            first = false;
-            count++;
+    private void publish(int kind, int count) {
+        ring.publish(kind, elapsed, count);
+        int lag = ring.size();
+        if (lag > maxLag) maxLag = lag;
+    }
+
+    /**
+     * Decides whether a frame may be captured when the ring is full. Only the game
+     * thread adds to the ring, so room seen here is still there when the frame is
+     * published.
+     */
+    private boolean admit(int entities, boolean keyframe) {
+        if (ring.hasRoom(entities)) return true;
+        switch (config.overflowPolicy) {
+            case DROP_DELTAS:
+                if (keyframe) break;
+                droppedRecords++;
+                return false;
+            case COALESCE:
+                // 不写本次记录：已写入状态不变，下一条增量帧自然包含这段时间的全部变化
+                coalescedRecords++;
+                return false;
+            case BLOCK:
+            default:
+                break;
         }
-        sb.append("]}");
-        if (count == 0) return false;
-        enqueue(sb.toString());
+        waitForRoom(entities);
         return true;
     }
 
-    private void enqueue(String line) {
-        if (!lineQueue.offer(line)) {
-            // 简单丢弃策略：队列满时丢弃低优先级数据（此处直接丢弃）
+    // 环形缓冲已满时等待写线程释放槽位（BLOCK 策略、关键帧与停止录制时）
+    private void waitForRoom(int entities) {
+        if (ring.hasRoom(entities)) return;
+        long start = System.nanoTime();
+        while (!ring.hasRoom(entities) && writerThread.isAlive()) {
+            ring.awaitRoom(entities);
         }
+        blockedNanos += System.nanoTime() - start;
     }
-}
 
+    // 写线程：取出所有已发布的帧，差分、编码后批量写入
+    private void drainRing() {
+        boolean done = false;
+        lastSyncNanos = System.nanoTime();
+        try {
+            while (!done) {
+                if (!ring.available()) {
+                    flushBuffer();
+                    syncIfDue();
+                    ring.awaitData();
+                    continue;
+                }
+                done = processFrame();
+                ring.release();
+                if (buffer.size() >= WRITE_BATCH_BYTES) flushBuffer();
+                syncIfDue();
+            }
+            flushBuffer();
+        } finally {
+            try { storage.closeWriter(); } catch (Exception ignored) {}
+        }
+    }
+
+    private void flushBuffer() {
+        if (buffer.size() == 0) return;
+        if (!writeFailed) {
+            try {
+                storage.write(buffer.array(), 0, buffer.size());
+                writtenBytes += buffer.size();
+                writeBatches++;
+            } catch (IOException e) {
+                // 写入失败后继续消费数据，避免阻塞游戏线程
+                writeFailed = true;
+                System.err.println("录像写入失败: " + e.getMessage());
+            }
+        }
+        buffer.reset();
+    }
 
+    // PERIODIC 策略：到期时连同未满的压缩块一起落盘；空闲时 awaitData 最多等待几毫秒，到期检查不会被推迟
+    private void syncIfDue() {
+        if (config.syncPolicy != RecordingConfig.SyncPolicy.PERIODIC || writeFailed) return;
+        long now = System.nanoTime();
+        if (now - lastSyncNanos < config.syncIntervalMs * 1_000_000L) return;
+        lastSyncNanos = now;
+        flushBuffer();
+        try {
+            storage.sync();
+        } catch (IOException e) {
+            writeFailed = true;
+            System.err.println("录像写入失败: " + e.getMessage());
+        }
+    }
+
+    private boolean processFrame() {
+        int kind = ring.kind();
+        double t = ring.time();
+        int count = ring.count();
+        switch (kind) {
+            case SnapshotRing.KIND_END:
+                return true;
+            case SnapshotRing.KIND_INPUT:
+                if (writerKeys.length < count) writerKeys = new int[count];
+                for (int i = 0; i < count; i++) {
+                    writerKeys[i] = ring.key(i);
+                }
+                encoder.writeInput(buffer, t, writerKeys, count);
+                return false;
+            default:
+                while (records.size() < count) records.add(new EntityRecord());
+                for (int i = 0; i < count; i++) {
+                    ring.readEntity(i, records.get(i));
+                }
+                writeSample(t, count, kind != SnapshotRing.KIND_SAMPLE, kind == SnapshotRing.KIND_FINAL);
+                return false;
+        }
+    }
+
+    private void writeSample(double t, int count, boolean keyframeDue, boolean force) {
+        diff(count);
+        keyframeDue |= keyframePending || !hasKeyframe;
+        if (!force && hasKeyframe && changed.isEmpty() && removed.isEmpty() && restyled.isEmpty()) {
+            // 暂停或静止时不写任何记录；到期的关键帧推迟到下一次变化
+            idleSince = t;
+            keyframePending = keyframeDue;
+            return;
+        }
+        if (idleSince >= 0) {
+            // 空增量帧标记静止区间的结束，避免回放把之后的移动插值到整个静止区间
+            encoder.writeDelta(buffer, idleSince, Collections.emptyList(), Collections.emptyList());
+            idleSince = -1;
+        }
+        for (int i = 0; i < restyled.size(); i++) {
+            encoder.writeAppearance(buffer, t, restyled.get(i));
+        }
+        if (keyframeDue || force) {
+            encoder.writeKeyframe(buffer, t, records, count);
+            for (EntityRecord e : written.values()) freeRecords.add(e);
+            written.clear();
+            for (int i = 0; i < count; i++) remember(records.get(i));
+            hasKeyframe = true;
+            keyframePending = false;
+        } else {
+            encoder.writeDelta(buffer, t, changed, removed);
+            for (EntityRecord e : changed) remember(e);
+            // 只有外观变化的实体不更新位置，位置仍以上次写出的为准
+            for (EntityRecord e : restyled) written.get(e.id).setAppearance(e);
+            for (String id : removed) freeRecords.add(written.remove(id));
+        }
+    }
+
+    // 找出相对已写入状态新出现、移动超过阈值或已消失的实体，以及新出现或外观变化的实体
+    private void diff(int count) {
+        changed.clear();
+        removed.clear();
+        restyled.clear();
+        seen.clear();
+        float threshold = config.positionThreshold;
+        int spawned = 0;
+        for (int i = 0; i < count; i++) {
+            EntityRecord e = records.get(i);
+            seen.add(e.id);
+            EntityRecord last = written.get(e.id);
+            if (last == null) {
+                spawned++;
+                changed.add(e);
+                restyled.add(e);
+                continue;
+            }
+            if (Math.abs(e.x - last.x) > threshold || Math.abs(e.y - last.y) > threshold) {
+                changed.add(e);
+            }
+            if (!e.sameAppearance(last)) restyled.add(e);
+        }
+        if (written.size() + spawned > seen.size()) {
+            for (String id : written.keySet()) {
+                if (!seen.contains(id)) removed.add(id);
+            }
+        }
+    }
+
+    private void remember(EntityRecord e) {
+        EntityRecord copy = written.get(e.id);
+        if (copy == null) {
+            copy = freeRecords.isEmpty() ? new EntityRecord() : freeRecords.poll();
+            written.put(e.id, copy);
+        }
+        copy.set(e);
+    }
+
+    // 写线程尚未处理的帧数
+    public int getLag() {
+        return ring.size();
+    }
+
+    public int getMaxLag() {
+        return maxLag;
+    }
+
+    public long getDroppedRecords() {
+        return droppedRecords;
+    }
+
+    public long getCoalescedRecords() {
+        return coalescedRecords;
+    }
+
+    // 游戏线程因缓冲已满而等待的累计时间
+    public long getBlockedNanos() {
+        return blockedNanos;
+    }
+
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    public long getWriteBatches() {
+        return writeBatches;
+    }
+
+    public boolean hasWriteFailed() {
+        return writeFailed;
+    }
+
+    public void publishMetrics(EngineMetrics metrics) {
+        metrics.setRecordingStats(getLag(), droppedRecords, coalescedRecords, blockedNanos / 1_000_000f);
+    }
+}
@@ -2,15 +2,16 @@ package com.gameengine.recording;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 public interface RecordingStorage {
     void openWriter(String path) throws IOException;
-    void writeLine(String line) throws IOException;
+    void write(byte[] data, int offset, int length) throws IOException;
+    // 把已写入的数据（包括缓冲与未满的压缩块）强制写到存储设备
+    void sync() throws IOException;
     void closeWriter();
 
-    Iterable<String> readLines(String path) throws IOException;
+    InputStream openReader(String path) throws IOException;
     List<File> listRecordings();
 }
-
-
@@ -0,0 +1,188 @@
+package com.gameengine.recording;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-producer / single-consumer ring of captured frames. The game thread
+ * copies entity state into preallocated primitive columns and publishes a frame
+ * descriptor; the writer thread reads the columns, encodes them and releases the
+ * slots. Nothing is allocated per frame. A waiting side parks and is unparked by
+ * the other side, so neither thread polls.
+ */
+final class SnapshotRing {
+    static final int KIND_SAMPLE = 0;   // 普通采样，由写线程决定写增量帧还是跳过
+    static final int KIND_KEYFRAME = 1; // 关键帧间隔已到
+    static final int KIND_FINAL = 2;    // 停止录制时的最后一帧，总是写完整关键帧
+    static final int KIND_INPUT = 3;    // 按键码存放在 shape 列
+    static final int KIND_END = 4;
+
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final int frameMask;
+    private final int[] frameKind;
+    private final double[] frameTime;
+    private final long[] frameStart;
+    private final int[] frameCount;
+
+    private final int entityMask;
+    private final String[] ids;
+    private final float[] xs;
+    private final float[] ys;
+    private final int[] shapes;
+    private final float[] ws;
+    private final float[] hs;
+    private final float[] rs;
+    private final float[] gs;
+    private final float[] bs;
+    private final float[] as;
+
+    // frameHead 由生产者写，frameTail/entityTail 由消费者写
+    private volatile long frameHead;
+    private volatile long frameTail;
+    private volatile long entityTail;
+    private long entityHead; // 只由生产者访问
+    private volatile Thread parkedConsumer;
+    private volatile Thread parkedProducer;
+
+    SnapshotRing(int frameCapacity, int entityCapacity) {
+        int frames = powerOfTwo(frameCapacity);
+        int entities = powerOfTwo(entityCapacity);
+        frameMask = frames - 1;
+        frameKind = new int[frames];
+        frameTime = new double[frames];
+        frameStart = new long[frames];
+        frameCount = new int[frames];
+        entityMask = entities - 1;
+        ids = new String[entities];
+        xs = new float[entities];
+        ys = new float[entities];
+        shapes = new int[entities];
+        ws = new float[entities];
+        hs = new float[entities];
+        rs = new float[entities];
+        gs = new float[entities];
+        bs = new float[entities];
+        as = new float[entities];
+    }
+
+    private static int powerOfTwo(int n) {
+        int p = 16;
+        while (p < n && p < (1 << 30)) p <<= 1;
+        return p;
+    }
+
+    int entityCapacity() {
+        return entityMask + 1;
+    }
+
+    // 等待写出的帧数
+    int size() {
+        return (int) (frameHead - frameTail);
+    }
+
+    // ---- 生产者（游戏线程） ----
+
+    boolean hasRoom(int entities) {
+        return frameHead - frameTail <= frameMask
+            && entityHead + entities - entityTail <= entityMask + 1;
+    }
+
+    void awaitRoom(int entities) {
+        parkedProducer = Thread.currentThread();
+        if (!hasRoom(entities)) LockSupport.parkNanos(this, PARK_NANOS);
+        parkedProducer = null;
+    }
+
+    void putEntity(int i, String id, float x, float y) {
+        int slot = (int) (entityHead + i) & entityMask;
+        ids[slot] = id;
+        xs[slot] = x;
+        ys[slot] = y;
+        shapes[slot] = EntityRecord.SHAPE_CUSTOM;
+    }
+
+    void putAppearance(int i, int shape, float w, float h, float r, float g, float b, float a) {
+        int slot = (int) (entityHead + i) & entityMask;
+        shapes[slot] = shape;
+        ws[slot] = w;
+        hs[slot] = h;
+        rs[slot] = r;
+        gs[slot] = g;
+        bs[slot] = b;
+        as[slot] = a;
+    }
+
+    void putKey(int i, int key) {
+        shapes[(int) (entityHead + i) & entityMask] = key;
+    }
+
+    // 写完数据后发布帧，之后消费者才能看到这些槽位
+    void publish(int kind, double t, int count) {
+        long head = frameHead;
+        int f = (int) head & frameMask;
+        frameKind[f] = kind;
+        frameTime[f] = t;
+        frameStart[f] = entityHead;
+        frameCount[f] = count;
+        entityHead += count;
+        frameHead = head + 1;
+        Thread consumer = parkedConsumer;
+        if (consumer != null) LockSupport.unpark(consumer);
+    }
+
+    // ---- 消费者（写线程） ----
+
+    boolean available() {
+        return frameTail != frameHead;
+    }
+
+    void awaitData() {
+        parkedConsumer = Thread.currentThread();
+        if (!available()) LockSupport.parkNanos(this, PARK_NANOS);
+        parkedConsumer = null;
+    }
+
+    int kind() {
+        return frameKind[(int) frameTail & frameMask];
+    }
+
+    double time() {
+        return frameTime[(int) frameTail & frameMask];
+    }
+
+    int count() {
+        return frameCount[(int) frameTail & frameMask];
+    }
+
+    void readEntity(int i, EntityRecord out) {
+        int slot = (int) (frameStart[(int) frameTail & frameMask] + i) & entityMask;
+        out.id = ids[slot];
+        out.x = xs[slot];
+        out.y = ys[slot];
+        if (shapes[slot] == EntityRecord.SHAPE_CUSTOM) {
+            out.setCustom();
+            return;
+        }
+        out.shape = shapes[slot];
+        out.w = ws[slot];
+        out.h = hs[slot];
+        out.r = rs[slot];
+        out.g = gs[slot];
+        out.b = bs[slot];
+        out.a = as[slot];
+    }
+
+    int key(int i) {
+        return shapes[(int) (frameStart[(int) frameTail & frameMask] + i) & entityMask];
+    }
+
+    // 当前帧处理完毕，释放它占用的槽位
+    void release() {
+        int f = (int) frameTail & frameMask;
+        entityTail = frameStart[f] + frameCount[f];
+        frameTail = frameTail + 1;
+        Thread producer = parkedProducer;
+        if (producer != null) LockSupport.unpark(producer);
+    }
+}
@@ -2,15 +2,33 @@ package com.gameengine.scene;
 
 import com.gameengine.core.GameObject;
 import com.gameengine.core.Component;
+import com.gameengine.graphics.IRenderer;
 import java.util.*;
 import java.util.stream.Collectors;
 
 public class Scene {
+    // 场景在 super.render() 之后直接绘制的内容（HUD、菜单等）所在的图层，位于所有对象之上
+    public static final int OVERLAY_LAYER = Short.MAX_VALUE;
+    
     private String name;
     private List<GameObject> gameObjects;
     private List<GameObject> objectsToAdd;
     private List<GameObject> objectsToRemove;
     private boolean initialized;
+    // 对象集合每次增删时递增，供系统判断缓存的对象列表是否过期
+    private int structureVersion;
+    // 视口（屏幕坐标），宽或高为 0 时不做裁剪
+    private float viewX;
+    private float viewY;
+    private float viewWidth;
+    private float viewHeight;
+    private float cullMargin = 16f;
+    private final float[] bounds = new float[4];
+    private int renderedCount;
+    private int culledCount;
+    // 静态图层按图层号升序先于其它对象绘制，内容由渲染器缓存
+    private IRenderer renderer;
+    private final TreeSet<Integer> staticLayers = new TreeSet<>();
     
     public Scene(String name) {
         this.name = name;
@@ -28,8 +46,12 @@ public class Scene {
     }
     
     public void update(float deltaTime) {
+        if (!objectsToAdd.isEmpty() || !objectsToRemove.isEmpty()) {
+            structureVersion++;
+        }
         for (GameObject obj : objectsToAdd) {
             gameObjects.add(obj);
+            layerChanged(obj);
             if (initialized) {
                 obj.initialize();
             }
@@ -38,6 +60,7 @@ public class Scene {
         
         for (GameObject obj : objectsToRemove) {
             gameObjects.remove(obj);
+            layerChanged(obj);
         }
         objectsToRemove.clear();
         
@@ -48,16 +71,112 @@ public class Scene {
                 obj.update(deltaTime);
             } else {
                 iterator.remove();
+                structureVersion++;
+                layerChanged(obj);
             }
         }
     }
     
     public void render() {
+        renderedCount = 0;
+        culledCount = 0;
+        boolean cached = renderer != null && !staticLayers.isEmpty();
+        if (cached) {
+            for (int layer : staticLayers) {
+                if (renderer.beginStaticLayer(layer)) {
+                    for (GameObject obj : gameObjects) {
+                        if (obj.getLayer() == layer) {
+                            renderVisible(obj);
+                        }
+                    }
+                }
+                renderer.endStaticLayer();
+            }
+        }
         for (GameObject obj : gameObjects) {
-            if (obj.isActive()) {
-                obj.render();
+            if (!cached || !staticLayers.contains(obj.getLayer())) {
+                renderVisible(obj);
             }
         }
+        if (renderer != null) {
+            renderer.setDrawOrder(OVERLAY_LAYER, 0);
+        }
+    }
+    
+    private void renderVisible(GameObject obj) {
+        if (!obj.isActive()) {
+            return;
+        }
+        if (viewWidth > 0 && viewHeight > 0 && obj.getRenderBounds(bounds)
+                && (bounds[2] < viewX - cullMargin || bounds[0] > viewX + viewWidth + cullMargin
+                    || bounds[3] < viewY - cullMargin || bounds[1] > viewY + viewHeight + cullMargin)) {
+            culledCount++;
+            return;
+        }
+        if (renderer != null) {
+            renderer.setDrawOrder(obj.getLayer(), obj.getZ());
+        }
+        obj.render();
+        renderedCount++;
+    }
+    
+    public void setRenderer(IRenderer renderer) {
+        this.renderer = renderer;
+    }
+    
+    /**
+     * Marks a layer as static: its objects are drawn once into a cached image that
+     * is reused every frame until an object joins or leaves the layer, the viewport
+     * changes, or invalidateLayer is called (e.g. after changing a color).
+     */
+    public void setLayerStatic(int layer, boolean isStatic) {
+        if (isStatic) {
+            staticLayers.add(layer);
+        } else {
+            staticLayers.remove(layer);
+        }
+        invalidateLayer(layer);
+    }
+    
+    public void invalidateLayer(int layer) {
+        if (renderer != null) {
+            renderer.invalidateStaticLayer(layer);
+        }
+    }
+    
+    private void layerChanged(GameObject obj) {
+        if (staticLayers.contains(obj.getLayer())) {
+            invalidateLayer(obj.getLayer());
+        }
+    }
+    
+    /**
+     * Sets the visible region in the coordinates objects render in. Objects whose
+     * render bounds lie entirely outside it (plus the cull margin) are skipped.
+     */
+    public void setViewport(float x, float y, float width, float height) {
+        if (renderer != null && !staticLayers.isEmpty()
+                && (x != viewX || y != viewY || width != viewWidth || height != viewHeight)) {
+            renderer.invalidateStaticLayers();
+        }
+        this.viewX = x;
+        this.viewY = y;
+        this.viewWidth = width;
+        this.viewHeight = height;
+    }
+    
+    public void setCullMargin(float cullMargin) {
+        this.cullMargin = Math.max(0, cullMargin);
+    }
+    
+    // 上一次 render() 实际绘制的对象数
+    public int getRenderedCount() {
+        return renderedCount;
+    }
+    
+    // 上一次 render() 因在视口外而跳过的对象数
+    public int getCulledCount() {
+        return culledCount;
     }
     
     public void addGameObject(GameObject gameObject) {
@@ -78,15 +197,23 @@ public class Scene {
     }
     
     public void clear() {
+        for (int layer : staticLayers) {
+            invalidateLayer(layer);
+        }
         gameObjects.clear();
         objectsToAdd.clear();
         objectsToRemove.clear();
+        structureVersion++;
     }
     
     public String getName() {
         return name;
     }
     
+    public int getStructureVersion() {
+        return structureVersion;
+    }
+    
     public List<GameObject> getGameObjects() {
         return new ArrayList<>(gameObjects);
     }